@@ -0,0 +1,133 @@
+package frc.robot.subsystems;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+import frc.robot.Constants.DriveConstants;
+import frc.robot.replay.RobotLoop;
+
+/**
+ * The production drive loop off the robot.  A DriveSubsystem runs on the simulated HAL with
+ * IO stubs that only hand back changing sensor values, so the benchmarks measure the drive
+ * code itself: drive() with discretization, kinematics or the setpoint generator and the
+ * module optimization and feedforward, and periodic() with the sensor snapshot, odometry and
+ * telemetry.  The simulated clock steps one robot loop per call.  Use the gc profiler's
+ * gc.alloc.rate.norm to check the loop stays allocation free.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DriveMathBenchmark {
+
+    private static final int kSAMPLES = 1024;
+    private static final double kLOOP_PERIOD = 0.02;
+
+    private final double[] m_xInput = new double[kSAMPLES];
+    private final double[] m_yInput = new double[kSAMPLES];
+    private final double[] m_rotInput = new double[kSAMPLES];
+    private int m_ix = 0;
+
+    private final BenchmarkModuleIO[] m_moduleIO = new BenchmarkModuleIO[4];
+    private final BenchmarkGyroIO m_gyroIO = new BenchmarkGyroIO();
+    private DriveSubsystem m_drive;
+
+    /* Sensor values that change every loop, without a physics model allocating underneath */
+    private static class BenchmarkModuleIO implements ModuleIO {
+        double m_position = 0.0;
+        double m_velocity = 0.0;
+        double m_turn = 0.0;
+
+        @Override
+        public void updateInputs(ModuleIOInputs inputs) {
+            inputs.drivePositionMeters = m_position;
+            inputs.driveVelocityMetersPerSec = m_velocity;
+            inputs.turnPositionRad = m_turn;
+        }
+    }
+
+    private static class BenchmarkGyroIO implements GyroIO {
+        double m_angle = 0.0;
+
+        @Override
+        public void updateInputs(GyroIOInputs inputs) {
+            inputs.angleDegrees = m_angle;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        RobotLoop.initSimulation();
+
+        Random random = new Random(4662);
+        for (int ix = 0; ix < kSAMPLES; ix++) {
+            // joystick inputs, smoothly varying like a driver would
+            double phase = 2 * Math.PI * ix / kSAMPLES;
+            m_xInput[ix] = Math.cos(phase) * random.nextDouble();
+            m_yInput[ix] = Math.sin(phase) * random.nextDouble();
+            m_rotInput[ix] = (random.nextDouble() - 0.5) * 2;
+        }
+
+        for (int ix = 0; ix < m_moduleIO.length; ix++) {
+            m_moduleIO[ix] = new BenchmarkModuleIO();
+        }
+        // odometry in periodic rather than on the notifier thread, no vision
+        m_drive = new DriveSubsystem(m_gyroIO,
+                m_moduleIO[0], m_moduleIO[1], m_moduleIO[2], m_moduleIO[3], null, false);
+    }
+
+    private int next() {
+        m_ix = (m_ix + 1) & (kSAMPLES - 1);
+        SimHooks.stepTiming(kLOOP_PERIOD);
+        return m_ix;
+    }
+
+    @Benchmark
+    public void driveUnlimited() {
+        int ix = next();
+        m_drive.drive(m_xInput[ix], m_yInput[ix], m_rotInput[ix], false, false);
+    }
+
+    @Benchmark
+    public void driveRateLimited() {
+        int ix = next();
+        m_drive.drive(m_xInput[ix], m_yInput[ix], m_rotInput[ix], true, true);
+    }
+
+    @Benchmark
+    public void periodic() {
+        int ix = next();
+        for (int module = 0; module < m_moduleIO.length; module++) {
+            BenchmarkModuleIO io = m_moduleIO[module];
+            io.m_velocity = m_xInput[ix] * DriveConstants.kMaxSpeedMetersPerSecond;
+            io.m_position += io.m_velocity * kLOOP_PERIOD;
+            io.m_turn = 2 * Math.PI * ((ix + module * 64) & (kSAMPLES - 1)) / kSAMPLES;
+        }
+        m_gyroIO.m_angle += m_rotInput[ix];
+        m_drive.periodic();
+    }
+
+    /* WPILib kinematics through kDriveKinematics - the allocating path drive() used before */
+    @Benchmark
+    public SwerveModuleState[] kinematicsWpilib() {
+        int ix = next();
+        SwerveModuleState[] states = DriveConstants.kDriveKinematics.toSwerveModuleStates(new ChassisSpeeds(
+                m_xInput[ix] * DriveConstants.kMaxSpeedMetersPerSecond,
+                m_yInput[ix] * DriveConstants.kMaxSpeedMetersPerSecond,
+                m_rotInput[ix] * DriveConstants.kMaxAngularSpeed));
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, DriveConstants.kMaxSpeedMetersPerSecond);
+        return states;
+    }
+}
@@ -6,7 +6,10 @@ package frc.robot;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
@@ -30,6 +33,10 @@ public final class Constants {
     public static final double kMaxSpeedMetersPerSecond = 4.8;
     public static final double kMaxAngularSpeed = 2 * Math.PI; // radians per second
 
+    // Period the drive setpoints are held for - chassis speed discretization and
+    // the module feedforward from consecutive setpoints
+    public static final double kDriveLoopPeriod = 0.02; // seconds
+
     public static final double kDirectionSlewRate = 1.2; // radians per second
     public static final double kMagnitudeSlewRate = 1.8; // percent per second (1 = 100%)
     public static final double kRotationalSlewRate = 2.0; // percent per second (1 = 100%)
@@ -45,6 +52,11 @@ public final class Constants {
         new Translation2d(-kWheelBase / 2, kTrackWidth / 2),
         new Translation2d(-kWheelBase / 2, -kTrackWidth / 2));
 
+    // Module locations (x forward, y left) in the same order as kDriveKinematics
+    // for the allocation free kinematics in DriveSubsystem - keep both in sync
+    public static final double[] kModuleXMeters = {kWheelBase / 2, kWheelBase / 2, -kWheelBase / 2, -kWheelBase / 2};
+    public static final double[] kModuleYMeters = {kTrackWidth / 2, -kTrackWidth / 2, kTrackWidth / 2, -kTrackWidth / 2};
+
     // Angular offsets of the modules relative to the chassis in radians
     public static final double kFrontLeftChassisAngularOffset = -Math.PI / 2;
     public static final double kFrontRightChassisAngularOffset = 0;
@@ -73,6 +85,15 @@ public final class Constants {
     public static final int kRearRightTurningCanId = 5;
 
     public static final boolean kGyroReversed = true;
+
+    // Odometry thread rate - runs independent of the 50 Hz scheduler loop.
+    // Limited to kMinOdometryFrequencyHz..kMaxOdometryFrequencyHz
+    public static final double kOdometryFrequencyHz = 200.0;
+    public static final double kMinOdometryFrequencyHz = 100.0;
+    public static final double kMaxOdometryFrequencyHz = 250.0;
+    // SPARK MAX status frame period of the odometry signals (driving position, turning
+    // absolute position) - a new CAN frame for every odometry sample
+    public static final int kOdometryFramePeriodMs = (int) Math.round(1000.0 / kOdometryFrequencyHz);
   }
 
   public static final class ModuleConstants {
@@ -108,7 +129,8 @@ public final class Constants {
     public static final double kDrivingP = 0.04;
     public static final double kDrivingI = 0;
     public static final double kDrivingD = 0;
-    public static final double kDrivingFF = 1 / kDriveWheelFreeSpeedRps;
+    // velocity feedforward is the arbitrary feedforward below (kDrivingS/V/A), not the SPARK MAX's
+    public static final double kDrivingFF = 0;
     public static final double kDrivingMinOutput = -1;
     public static final double kDrivingMaxOutput = 1;
 
@@ -124,6 +146,25 @@ public final class Constants {
 
     public static final int kDrivingMotorCurrentLimit = 50; // amps
     public static final int kTurningMotorCurrentLimit = 20; // amps
+
+    // Setpoint generator limits - what every module can follow without scrubbing
+    // MAXSwerve steering is a NEO 550 through a 9424:203 reduction
+    public static final double kTurningMotorReduction = 9424.0 / 203;
+    public static final double kTurningMaxVelocity = 0.8 * NeoMotorConstants.kNeo550FreeSpeedRpm / 60
+        * 2 * Math.PI / kTurningMotorReduction; // radians per second, 80% of free speed
+    public static final double kWheelCoefficientOfFriction = 1.0;
+    public static final double kDrivingMaxAcceleration = kWheelCoefficientOfFriction * 9.81; // meters per second squared
+
+    // Module feedforward, sent as SPARK MAX arbitrary feedforward - drive acceleration and
+    // steering velocity from consecutive setpoints
+    // Drive kS/kV/kA - kV is 12 V at the wheel free speed, kS and kA estimated for a 50 kg
+    // robot on NEOs (tune with SysId)
+    public static final double kDrivingS = 0.1; // volts
+    public static final double kDrivingV = 12.0 / kDriveWheelFreeSpeedRps; // volts per meter per second
+    public static final double kDrivingA = 0.4; // volts per meter per second squared
+    // Steering velocity - 12 V at the NEO 550 free speed through the steering reduction
+    public static final double kTurningV = 12.0
+        / (NeoMotorConstants.kNeo550FreeSpeedRpm / 60 * 2 * Math.PI / kTurningMotorReduction); // volts per radian per second
   }
 
   public static final class OIConstants {
@@ -132,7 +173,6 @@ public final class Constants {
     public static final int kAUTONOMOUS_CONSOLE_PORT = 1;
 
     public static final double kCONTROLLER_TRIGGER_THRESHOLD = 0.75;
-    public static final double kINTAKE_FEED_DELAY = 0.8;
 
   }
 
@@ -145,9 +185,23 @@ public final class Constants {
     public static final int kSHOOTER_CURRENT_LIMIT = 40;
 
     public static final double kSHOOT_SPEED_IDLE = 0;
-    public static final double kSHOOT_SPEED_LAUNCH = 0.9;
     public static final double kSHOOT_SPEED_INTAKE = -0.3;
 
+    // launch - TalonFX velocity closed loop, the note is fed once both flywheels are within tolerance
+    public static final double kSHOOT_RPM_LAUNCH = 5000;
+    public static final double kSHOOT_RPM_TOLERANCE = 150;
+    public static final double kSPINUP_TIMEOUT = 1.5; // seconds, feed anyway if the flywheels never get there
+
+    // idle - pre-spin while a note is held, spin down after kPRESPIN_TIMEOUT without a shot
+    public static final double kSHOOT_RPM_PRESPIN = 3000;
+    public static final double kPRESPIN_TIMEOUT = 10.0; // seconds
+
+    // Slot 0 velocity gains, volts per rotation per second of the motor
+    public static final double kSHOOTER_S = 0.2;
+    public static final double kSHOOTER_V = 0.12;
+    public static final double kSHOOTER_P = 0.3;
+    public static final double kVELOCITY_UPDATE_HZ = 100; // flywheel velocity status signal rate
+
   }
 
   // INTAKE subsystem 
@@ -180,9 +234,63 @@ public final class Constants {
     // Constraint for the motion profiled robot angle controller
     public static final TrapezoidProfile.Constraints kThetaControllerConstraints = new TrapezoidProfile.Constraints(
         kMaxAngularSpeedRadiansPerSecond, kMaxAngularSpeedRadiansPerSecondSquared);
+
+    // Path following - feedback on the pose error added to the trajectory's velocities
+    public static final double kPathTranslationP = 5.0;
+    public static final double kPathRotationP = 5.0;
+    public static final double kTrajectorySamplePeriod = 0.02; // seconds between precomputed samples
+
+    // Autonomous pattern timing - checked offline by AutoPatternValidator
+    public static final double kAutoPeriodSeconds = 15.0;
+    public static final double kShootNoteTimeout = 2.0;
+    public static final int kWaitSwitchMax = 5; // highest wait rotary switch position (6 position switch)
   }
 
   public static final class NeoMotorConstants {
     public static final double kFreeSpeedRpm = 5676;
+    public static final double kNeo550FreeSpeedRpm = 11000;
+  }
+
+  // VISION - AprilTag pose estimation
+  public static final class VisionConstants {
+    public static final String kAPRILTAG_CAMERA_NAME = "AprilTag_Camera";
+    // camera lens relative to the robot center on the floor - forward, left, up, pitched up 20 degrees
+    public static final Transform3d kROBOT_TO_CAMERA = new Transform3d(
+        new Translation3d(Units.inchesToMeters(11.0), 0.0, Units.inchesToMeters(9.0)),
+        new Rotation3d(0.0, Units.degreesToRadians(-20.0), 0.0));
+
+    public static final double kPOLL_PERIOD = 0.02; // seconds
+    public static final int kQUEUE_CAPACITY = 16;
+
+    // outlier rejection
+    public static final double kMAX_AMBIGUITY = 0.2; // single tag pose ambiguity
+    public static final double kMAX_SINGLE_TAG_DISTANCE = 4.0; // meters
+    public static final double kMAX_MULTI_TAG_DISTANCE = 6.0; // meters
+    public static final double kMAX_HEIGHT_ERROR = 0.5; // meters off the floor
+
+    // standard deviations (x m, y m, theta rad) at 0 m, grown by (1 + distance^2 / kDISTANCE_SCALE)
+    public static final double[] kSINGLE_TAG_STD_DEVS = {1.0, 1.0, 4.0};
+    public static final double[] kMULTI_TAG_STD_DEVS = {0.3, 0.3, 0.8};
+    public static final double kDISTANCE_SCALE = 30.0; // m^2
+  }
+
+  // Desktop simulation physics models (not used on the robot)
+  public static final class SimConstants {
+    public static final double kMAX_STEP = 0.1; // seconds, longest step taken after a pause
+    public static final double kCONTROL_PERIOD = 0.001; // SPARK MAX onboard PID rate
+
+    // MAXSwerve module - NEO drive, NEO 550 turning, gearing in ModuleConstants
+    public static final double kDRIVE_MOI = 0.025; // kg m^2, robot mass share reflected to the wheel
+    public static final double kTURN_MOI = 0.004; // kg m^2
+
+    public static final double kSHOOTER_MOI = 0.002; // kg m^2, per flywheel side
+
+    // intake lift arm - retracted at 0, extended at kINTAKE_LIFT_TRAVEL_RAD
+    public static final double kINTAKE_LIFT_REDUCTION = 60.0;
+    public static final double kINTAKE_LIFT_MOI = 0.05; // kg m^2
+    public static final double kINTAKE_LIFT_TRAVEL_RAD = Units.degreesToRadians(110);
+    public static final double kINTAKE_LIMIT_TOLERANCE_RAD = Units.degreesToRadians(2);
+    public static final double kNOTE_PICKUP_TIME = 0.3; // seconds of intake spin to acquire a note
+    public static final double kNOTE_EJECT_TIME = 0.2; // seconds of eject spin to release it
   }
 }
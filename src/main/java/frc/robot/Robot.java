@@ -4,23 +4,157 @@
 
 package frc.robot;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.OIConstants;
+import frc.utils.DashboardPublisher;
+import frc.utils.LoopTiming;
+import frc.utils.SparkFingerprint;
+import frc.utils.TelemetryLog;
 
 public class Robot extends TimedRobot {
   private Command m_autonomousCommand;
 
   private RobotContainer m_robotContainer;
+  private final Supplier<RobotContainer> m_robotContainerFactory;
+
+  // loop timing - the loop period channel counts overruns 10% past the 20 ms budget
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final int m_loopPeriodChannel = m_loopTiming.register("Robot/LoopPeriod", LoopTiming.kLOOP_BUDGET_MS * 1.1);
+  private final int m_schedulerChannel = m_loopTiming.register("Robot/Scheduler");
+  private long m_lastLoopStart = 0;
+
+  private final TelemetryLog m_log = TelemetryLog.getInstance();
+
+  // driver station inputs for replay - see frc.robot.replay.ReplayMain for the layouts
+  public static final int[] kLOGGED_JOYSTICKS = {OIConstants.kDriverControllerPort, OIConstants.kAUTONOMOUS_CONSOLE_PORT};
+  public static final int kLOGGED_AXES = 6;
+  public static final int kLOGGED_POVS = 2;
+  private final int m_driverStationSignal = m_log.registerSignal("DriverStation/State", 4);
+  private final int[] m_joystickSignals = new int[kLOGGED_JOYSTICKS.length];
+  private final double[] m_driverStationSample = new double[4];
+  private final double[] m_joystickSample = new double[4 + kLOGGED_AXES + kLOGGED_POVS];
+  // CAN bus health once a second: utilization %, bus off, tx full, receive errors, transmit errors
+  private static final int kCAN_STATUS_LOOPS = 50;
+  private final int m_canStatusSignal = m_log.registerSignal("CAN/Status", 5);
+  private final double[] m_canStatusSample = new double[5];
+  private int m_canStatusLoops = 0;
+  private final DashboardPublisher m_dashboard = DashboardPublisher.getInstance();
+  private final DashboardPublisher.Signal m_canUtilizationDisplay =
+      m_dashboard.add("CAN Utilization %", DashboardPublisher.Type.NUMBER, 1.0);
+  // command timeline - "Command/<name>" is 1 while a command of that name runs
+  private final Map<String, Integer> m_commandSignals = new HashMap<>();
+
+  public Robot() {
+    this(RobotContainer::new);
+  }
+
+  /**
+   * @param robotContainerFactory Builds the RobotContainer in robotInit.
+   */
+  public Robot(Supplier<RobotContainer> robotContainerFactory) {
+    m_robotContainerFactory = robotContainerFactory;
+    for (int ix = 0; ix < kLOGGED_JOYSTICKS.length; ix++) {
+      m_joystickSignals[ix] = m_log.registerSignal("DriverStation/Joystick" + kLOGGED_JOYSTICKS[ix],
+          m_joystickSample.length);
+    }
+  }
 
   @Override
   public void robotInit() {
-    m_robotContainer = new RobotContainer();
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    m_loopTiming.bindScheduler(scheduler);
+    scheduler.onCommandInitialize(command -> recordCommand(command, true));
+    scheduler.onCommandFinish(command -> recordCommand(command, false));
+    scheduler.onCommandInterrupt(command -> recordCommand(command, false));
+    m_log.start();
+    long startTime = System.nanoTime();
+    m_robotContainer = m_robotContainerFactory.get();
+    SparkFingerprint.report();
+    System.out.println("Robot - RobotContainer built in " + (System.nanoTime() - startTime) / 1000000 + " ms");
   }
 
   @Override
   public void robotPeriodic() {
+    long loopStart = System.nanoTime();
+    m_log.startLoop();
+    if (m_lastLoopStart != 0) {
+      m_loopTiming.record(m_loopPeriodChannel, (loopStart - m_lastLoopStart) * 1e-6);
+    }
+    m_lastLoopStart = loopStart;
+    recordDriverStation();
+    recordCanStatus();
+
+    // the scheduler alone - the logging above is not part of this channel
+    long schedulerStart = System.nanoTime();
     CommandScheduler.getInstance().run();
+    m_loopTiming.recordSince(m_schedulerChannel, schedulerStart);
+
+    m_loopTiming.publishPeriodic();
+    m_dashboard.publishPeriodic();
+  }
+
+  /*
+   * Logs the driver station state and joysticks the subsystems read this loop.
+   * State: enabled, autonomous, test, alliance station (AllianceStationID ordinal)
+   * Joystick: axis count, button count, button mask, pov count, axes, povs
+   */
+  private void recordDriverStation() {
+    m_driverStationSample[0] = DriverStation.isEnabled() ? 1.0 : 0.0;
+    m_driverStationSample[1] = DriverStation.isAutonomous() ? 1.0 : 0.0;
+    m_driverStationSample[2] = DriverStation.isTest() ? 1.0 : 0.0;
+    m_driverStationSample[3] = DriverStation.getRawAllianceStation().ordinal();
+    m_log.record(m_driverStationSignal, m_driverStationSample);
+
+    for (int ix = 0; ix < kLOGGED_JOYSTICKS.length; ix++) {
+      int port = kLOGGED_JOYSTICKS[ix];
+      int axisCount = Math.min(DriverStation.getStickAxisCount(port), kLOGGED_AXES);
+      int povCount = Math.min(DriverStation.getStickPOVCount(port), kLOGGED_POVS);
+      m_joystickSample[0] = axisCount;
+      m_joystickSample[1] = DriverStation.getStickButtonCount(port);
+      m_joystickSample[2] = DriverStation.getStickButtons(port);
+      m_joystickSample[3] = povCount;
+      for (int axis = 0; axis < kLOGGED_AXES; axis++) {
+        m_joystickSample[4 + axis] = axis < axisCount ? DriverStation.getStickAxis(port, axis) : 0.0;
+      }
+      for (int pov = 0; pov < kLOGGED_POVS; pov++) {
+        m_joystickSample[4 + kLOGGED_AXES + pov] = pov < povCount ? DriverStation.getStickPOV(port, pov) : -1.0;
+      }
+      m_log.record(m_joystickSignals[ix], m_joystickSample);
+    }
+  }
+
+  private void recordCanStatus() {
+    if (++m_canStatusLoops < kCAN_STATUS_LOOPS) {
+      return;
+    }
+    m_canStatusLoops = 0;
+    CANStatus status = RobotController.getCANStatus();
+    m_canStatusSample[0] = status.percentBusUtilization * 100.0;
+    m_canStatusSample[1] = status.busOffCount;
+    m_canStatusSample[2] = status.txFullCount;
+    m_canStatusSample[3] = status.receiveErrorCount;
+    m_canStatusSample[4] = status.transmitErrorCount;
+    m_log.record(m_canStatusSignal, m_canStatusSample);
+    m_canUtilizationDisplay.set(m_canStatusSample[0]);
+  }
+
+  private void recordCommand(Command command, boolean isRunning) {
+    Integer signal = m_commandSignals.get(command.getName());
+    if (signal == null) {
+      // first run of a command with this name - one time registration
+      signal = m_log.registerSignal("Command/" + command.getName(), 1);
+      m_commandSignals.put(command.getName(), signal);
+    }
+    m_log.record(signal, isRunning);
   }
 
   @Override
@@ -5,13 +5,22 @@
 package frc.robot;
 
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
+import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.OIConstants;
+import frc.robot.Constants.ShooterConstants;
 import frc.robot.libraries.ConsoleAuto;
+import frc.robot.libraries.PathCache;
 import frc.robot.subsystems.AutonomousSubsystem;
 import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.GyroIOSim;
+import frc.robot.subsystems.IntakeIOSim;
+import frc.robot.subsystems.ModuleIOSim;
 import frc.robot.subsystems.NoteIntakeSubsystem;
 import frc.robot.subsystems.NoteShooterSubsystem;
+import frc.robot.subsystems.ShooterIOSim;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.RunCommand;
@@ -28,9 +37,9 @@ import edu.wpi.first.wpilibj2.command.button.Trigger;
  */
 public class RobotContainer {
   // The robot's subsystems
-  private final DriveSubsystem m_robotDrive = new DriveSubsystem();
-  private final NoteShooterSubsystem m_noteShooterSubsystem = new NoteShooterSubsystem();
-  private final NoteIntakeSubsystem m_noteIntakeSubsystem = new NoteIntakeSubsystem();
+  private final DriveSubsystem m_robotDrive;
+  private final NoteShooterSubsystem m_noteShooterSubsystem;
+  private final NoteIntakeSubsystem m_noteIntakeSubsystem;
 
 
 
@@ -47,6 +56,21 @@ public class RobotContainer {
    * The container for the robot. Contains subsystems, OI devices, and commands.
    */
   public RobotContainer() {
+    this(RobotBase.isReal() ? new DriveSubsystem() : createSimDrive(),
+        RobotBase.isReal() ? new NoteIntakeSubsystem() : new NoteIntakeSubsystem(new IntakeIOSim()),
+        RobotBase.isReal() ? new NoteShooterSubsystem() : new NoteShooterSubsystem(new ShooterIOSim()));
+  }
+
+  /**
+   * The container built on subsystems created elsewhere - used by replay to
+   * inject subsystems running on logged inputs.
+   */
+  public RobotContainer(DriveSubsystem robotDrive, NoteIntakeSubsystem noteIntakeSubsystem,
+      NoteShooterSubsystem noteShooterSubsystem) {
+    m_robotDrive = robotDrive;
+    m_noteIntakeSubsystem = noteIntakeSubsystem;
+    m_noteShooterSubsystem = noteShooterSubsystem;
+
     // Configure the button bindings
     configureButtonBindings();
 
@@ -57,22 +81,36 @@ public class RobotContainer {
     m_robotDrive.setDefaultCommand(
         // The left stick controls translation of the robot.
         // Turning is controlled by the X axis of the right stick.
+        // Module steering and acceleration are limited by the setpoint generator.
         new RunCommand(
             () -> m_robotDrive.drive(
                 -MathUtil.applyDeadband(m_driverController.getLeftY(), OIConstants.kDriveDeadband),
                 -MathUtil.applyDeadband(m_driverController.getLeftX(), OIConstants.kDriveDeadband),
                 -MathUtil.applyDeadband(m_driverController.getRightX(), OIConstants.kDriveDeadband),
-                false, false),
+                false, true),
             m_robotDrive));
 
-    // SHOOTER - idle motors
-   // m_noteShooterSubsystem.setDefaultCommand(m_noteShooterSubsystem.cmdShooterIdle());
+    // SHOOTER - idle motors, pre-spin while a NOTE is held
+    m_noteShooterSubsystem.setDefaultCommand(
+        m_noteShooterSubsystem.cmdShooterIdle(m_noteIntakeSubsystem::isNoteIn));
 
     // INTAKE - idle motors
     //m_noteIntakeSubsystem.setDefaultCommand(m_noteIntakeSubsystem.cmdSpinnerStop());
         
   }
 
+  /*
+   * Drive on the physics models for desktop simulation
+   */
+  private static DriveSubsystem createSimDrive() {
+    ModuleIOSim frontLeft = new ModuleIOSim(DriveConstants.kFrontLeftChassisAngularOffset);
+    ModuleIOSim frontRight = new ModuleIOSim(DriveConstants.kFrontRightChassisAngularOffset);
+    ModuleIOSim rearLeft = new ModuleIOSim(DriveConstants.kBackLeftChassisAngularOffset);
+    ModuleIOSim rearRight = new ModuleIOSim(DriveConstants.kBackRightChassisAngularOffset);
+    return new DriveSubsystem(new GyroIOSim(frontLeft, frontRight, rearLeft, rearRight),
+        frontLeft, frontRight, rearLeft, rearRight, null, true);
+  }
+
   /**
    * Use this method to define your button->command mappings. Buttons can be
    * created by
@@ -159,32 +197,66 @@ public class RobotContainer {
 //    return null;
   }
 
+  public Pose2d getPose() {
+    return m_robotDrive.getPose();
+  }
+
+  public void startPathSequence() {
+    m_robotDrive.startPathSequence();
+  }
+
+  /** Counts the drive's alliance changes - a changed count invalidates a prebuilt auto. */
+  public int getAllianceChangeCount() {
+    return m_robotDrive.getAllianceChangeCount();
+  }
+
+  public PathCache getPathCache() {
+    return m_robotDrive.getPathCache();
+  }
+
   public Command getDrivePathCommand(String pathName) {
     return m_robotDrive.getPathStep(pathName);
   }
   
+  /*
+   * Drives the path with the intake deployed and spinning, then waits up to
+   * dWaitTime at the end of the path for the NOTE before moving on
+   */
   public Command getIntakePathCommand(String pathName, double dWaitTime) {
-    return m_robotDrive.getPathStep(pathName);
+    return Commands.deadline(
+      m_robotDrive.getPathStep(pathName)
+        .andThen(Commands.waitUntil(m_noteIntakeSubsystem::isNoteIn).withTimeout(dWaitTime)),
+      m_noteIntakeSubsystem.cmdDeployIntake()
+        .andThen(m_noteIntakeSubsystem.cmdSpinnerIntake())
+        .unless(m_noteIntakeSubsystem::isNoteIn)
+    );
   }
 
   /*
    * Command to shoot the NOTE
-   * Parallel command to spin up the Shooter
-   * with Wait period to allow shooter to come to speed (could be a wait until on shooter RPM true)
-   * followed by Intake feeding out the NOTE
+   * Parallel command to spin up the Shooter (closed loop) while the Intake
+   * retracts, then feeds out the NOTE the moment both flywheels are at speed
+   * (kSPINUP_TIMEOUT at most)
    * 
    * Available as public so it can be used by Autonomous
    */
   public Command cmdShootNote() {
-    return (Commands.sequence(
-      m_noteIntakeSubsystem.cmdRetractIntake(),
-      Commands.parallel(m_noteShooterSubsystem.cmdShooterLaunch(),
-                Commands.sequence(Commands.waitSeconds(OIConstants.kINTAKE_FEED_DELAY),
-                    m_noteIntakeSubsystem.cmdSpinnerEject()))
-      )
+    return Commands.parallel(m_noteShooterSubsystem.cmdShooterLaunch(),
+      Commands.sequence(m_noteIntakeSubsystem.cmdRetractIntake(),
+        Commands.waitUntil(m_noteShooterSubsystem::isAtSpeed)
+          .withTimeout(ShooterConstants.kSPINUP_TIMEOUT),
+        m_noteIntakeSubsystem.cmdSpinnerEject())
     );
   }
 
+  /*
+   * Spins the shooter up to launch speed ahead of a shot, e.g. while driving
+   * back to the speaker - runs until interrupted
+   */
+  public Command cmdPreSpinShooter() {
+    return m_noteShooterSubsystem.cmdShooterPreSpin();
+  }
+
   public Command cmdPickUpNote() {
     return m_noteIntakeSubsystem.cmdPickUpNote();
   }
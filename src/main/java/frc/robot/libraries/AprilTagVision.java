@@ -0,0 +1,154 @@
+package frc.robot.libraries;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonCamera;
+import org.photonvision.PhotonPoseEstimator;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Notifier;
+
+import frc.robot.Constants.VisionConstants;
+
+/*
+ * AprilTagVision polls the PhotonVision AprilTag camera on its own Notifier
+ * thread, estimates the robot pose from the tags seen, rejects outliers, and
+ * queues timestamped measurements with standard deviations.  The drive drains
+ * the queue in periodic - the main loop never waits on the camera or the
+ * pose solve.
+ */
+public class AprilTagVision {
+
+  /** One accepted pose estimate, in field (blue origin) coordinates. */
+  public static class Measurement {
+    public final Pose2d pose;
+    public final double timestampSeconds; // capture time, FPGA timebase
+    public final Matrix<N3, N1> stdDevs;
+    public final int tagCount;
+    public final double averageDistance;
+
+    Measurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs, int tagCount,
+        double averageDistance) {
+      this.pose = pose;
+      this.timestampSeconds = timestampSeconds;
+      this.stdDevs = stdDevs;
+      this.tagCount = tagCount;
+      this.averageDistance = averageDistance;
+    }
+  }
+
+  private final PhotonCamera m_camera;
+  private final PhotonPoseEstimator m_poseEstimator;
+  private final AprilTagFieldLayout m_fieldLayout;
+  private final ArrayBlockingQueue<Measurement> m_measurements =
+      new ArrayBlockingQueue<>(VisionConstants.kQUEUE_CAPACITY);
+  private final Notifier m_notifier = new Notifier(this::pollCamera);
+  private double m_lastResultTimestamp = 0.0;
+  private volatile int m_rejectedCount = 0;
+
+  public AprilTagVision() {
+    m_fieldLayout = AprilTagFields.k2024Crescendo.loadAprilTagLayoutField();
+    m_camera = new PhotonCamera(VisionConstants.kAPRILTAG_CAMERA_NAME);
+    m_poseEstimator = new PhotonPoseEstimator(m_fieldLayout,
+        PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR, m_camera, VisionConstants.kROBOT_TO_CAMERA);
+    m_poseEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+  }
+
+  /**
+   * Starts polling the camera.
+   */
+  public void start() {
+    m_notifier.setName("AprilTagVision");
+    m_notifier.startPeriodic(VisionConstants.kPOLL_PERIOD);
+  }
+
+  /**
+   * @return the oldest queued measurement, or null when there is none. Never blocks.
+   */
+  public Measurement pollMeasurement() {
+    return m_measurements.poll();
+  }
+
+  public int getRejectedCount() {
+    return m_rejectedCount;
+  }
+
+  /* Notifier thread body */
+  private void pollCamera() {
+    PhotonPipelineResult result = m_camera.getLatestResult();
+    double timestamp = result.getTimestampSeconds();
+    if (!result.hasTargets() || timestamp == m_lastResultTimestamp) {
+      return;
+    }
+    m_lastResultTimestamp = timestamp;
+
+    Optional<EstimatedRobotPose> estimate = m_poseEstimator.update(result);
+    if (estimate.isEmpty()) {
+      return;
+    }
+    Measurement measurement = evaluate(estimate.get());
+    if (measurement == null) {
+      m_rejectedCount++;
+      return;
+    }
+    if (!m_measurements.offer(measurement)) {
+      // drive has not drained - drop the oldest, the newest estimate is worth more
+      m_measurements.poll();
+      m_measurements.offer(measurement);
+    }
+  }
+
+  /*
+   * Outlier rejection and standard deviations.
+   * Returns null to reject the estimate.
+   */
+  private Measurement evaluate(EstimatedRobotPose estimate) {
+    List<PhotonTrackedTarget> targets = estimate.targetsUsed;
+    int tagCount = targets.size();
+    if (tagCount == 0) {
+      return null;
+    }
+    if (tagCount == 1 && targets.get(0).getPoseAmbiguity() > VisionConstants.kMAX_AMBIGUITY) {
+      return null;
+    }
+
+    double distanceSum = 0.0;
+    for (PhotonTrackedTarget target : targets) {
+      distanceSum += target.getBestCameraToTarget().getTranslation().getNorm();
+    }
+    double averageDistance = distanceSum / tagCount;
+    double maxDistance = tagCount == 1
+        ? VisionConstants.kMAX_SINGLE_TAG_DISTANCE : VisionConstants.kMAX_MULTI_TAG_DISTANCE;
+    if (averageDistance > maxDistance) {
+      return null;
+    }
+
+    Pose3d pose = estimate.estimatedPose;
+    if (Math.abs(pose.getZ()) > VisionConstants.kMAX_HEIGHT_ERROR
+        || pose.getX() < 0.0 || pose.getX() > m_fieldLayout.getFieldLength()
+        || pose.getY() < 0.0 || pose.getY() > m_fieldLayout.getFieldWidth()) {
+      return null;
+    }
+
+    double[] baseStdDevs = tagCount == 1
+        ? VisionConstants.kSINGLE_TAG_STD_DEVS : VisionConstants.kMULTI_TAG_STD_DEVS;
+    double scale = 1.0 + averageDistance * averageDistance / VisionConstants.kDISTANCE_SCALE;
+    Matrix<N3, N1> stdDevs = VecBuilder.fill(
+        baseStdDevs[0] * scale, baseStdDevs[1] * scale, baseStdDevs[2] * scale);
+
+    return new Measurement(pose.toPose2d(), estimate.timestampSeconds, stdDevs, tagCount, averageDistance);
+  }
+}
@@ -0,0 +1,357 @@
+package frc.robot.libraries;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * AutoPatternSet is the parsed form of the autonomous pattern file
+ * (deploy/auto/patterns.txt).  Steps and patterns are immutable and indexed -
+ * patterns by their position on the ConsoleAuto pattern switch, steps by their
+ * position in the pattern - so selecting and building an autonomous command
+ * never searches or parses.
+ * A pattern runs its groups in order; a group is one step, steps run in
+ * parallel ("A+B", done when all are done) or steps run alongside a deadline
+ * step ("A/B", done when A is done, B is interrupted).
+ * No WPILib dependencies, the file can be checked off robot.
+ */
+public final class AutoPatternSet {
+
+  public static final String kDEPLOY_FILE = "auto/patterns.txt"; // under the deploy directory
+  public static final int kMAX_PATTERNS = 8; // POV positions of the pattern rotary switch
+  public static final int kMAX_STEPS = 64;   // per pattern, one bit each in the switch mask
+  public static final int kMAX_SWITCH = 12;  // ConsoleAuto toggle switches
+
+  public static final char kWAIT = 'W';
+  public static final char kDRIVE = 'D';
+  public static final char kINTAKE = 'I';
+  public static final char kSHOOT = 'S';
+  public static final char kEND = 'E';
+  public static final char kPRESPIN = 'P';
+
+  public static final char kGROUP_SINGLE = ' ';
+  public static final char kGROUP_PARALLEL = '+';
+  public static final char kGROUP_DEADLINE = '/';
+
+  private static final String kSTEP_TYPES = "WDISEP";
+  private static final String kWAIT_SWITCH = "sw";
+
+  /** One step definition - a line "step name type [wait] [switch ...]". */
+  public static final class Step {
+    private final String m_name;
+    private final char m_type;
+    private final double m_waitTime;
+    private final boolean m_isWaitFromSwitch;
+    private final int[] m_switchesOn;
+    private final int[] m_switchesOff;
+
+    private Step(String name, char type, double waitTime, boolean isWaitFromSwitch,
+        int[] switchesOn, int[] switchesOff) {
+      m_name = name;
+      m_type = type;
+      m_waitTime = waitTime;
+      m_isWaitFromSwitch = isWaitFromSwitch;
+      m_switchesOn = switchesOn;
+      m_switchesOff = switchesOff;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public char getType() {
+      return m_type;
+    }
+
+    /** Wait seconds, not meaningful when {@link #isWaitFromSwitch()}. */
+    public double getWaitTime() {
+      return m_waitTime;
+    }
+
+    /** True when the wait comes from the ConsoleAuto wait rotary switch. */
+    public boolean isWaitFromSwitch() {
+      return m_isWaitFromSwitch;
+    }
+
+    public boolean isPathStep() {
+      return m_type == kDRIVE || m_type == kINTAKE;
+    }
+
+    public int getSwitchOnCount() {
+      return m_switchesOn.length;
+    }
+
+    public int getSwitchOn(int ix) {
+      return m_switchesOn[ix];
+    }
+
+    public int getSwitchOffCount() {
+      return m_switchesOff.length;
+    }
+
+    public int getSwitchOff(int ix) {
+      return m_switchesOff[ix];
+    }
+
+    /** Switch condition for display, e.g. "3 & !2". */
+    public String getSwitchText() {
+      StringBuilder text = new StringBuilder();
+      for (int button : m_switchesOn) {
+        text.append(text.length() == 0 ? "" : " & ").append(button);
+      }
+      for (int button : m_switchesOff) {
+        text.append(text.length() == 0 ? "!" : " & !").append(button);
+      }
+      return text.toString();
+    }
+  }
+
+  /**
+   * One pattern - a line "pattern name group group ...".  Steps are indexed in
+   * file order across all groups; group g holds steps getGroupStart(g) up to
+   * getGroupStart(g + 1).
+   */
+  public static final class Pattern {
+    private final String m_name;
+    private final Step[] m_steps;
+    private final int[] m_groupStarts; // one extra entry, the step count
+    private final char[] m_groupTypes;
+
+    private Pattern(String name, Step[] steps, int[] groupStarts, char[] groupTypes) {
+      m_name = name;
+      m_steps = steps;
+      m_groupStarts = groupStarts;
+      m_groupTypes = groupTypes;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public int getStepCount() {
+      return m_steps.length;
+    }
+
+    public Step getStep(int ix) {
+      return m_steps[ix];
+    }
+
+    public int getGroupCount() {
+      return m_groupTypes.length;
+    }
+
+    /** Index of the group's first step - its deadline in a deadline group. */
+    public int getGroupStart(int group) {
+      return m_groupStarts[group];
+    }
+
+    /** Index after the group's last step. */
+    public int getGroupEnd(int group) {
+      return m_groupStarts[group + 1];
+    }
+
+    /** {@link #kGROUP_SINGLE}, {@link #kGROUP_PARALLEL} or {@link #kGROUP_DEADLINE}. */
+    public char getGroupType(int group) {
+      return m_groupTypes[group];
+    }
+  }
+
+  private final List<Pattern> m_patterns;
+  private final int m_maxStepCount;
+
+  private AutoPatternSet(List<Pattern> patterns) {
+    m_patterns = Collections.unmodifiableList(patterns);
+    int maxStepCount = 0;
+    for (Pattern pattern : patterns) {
+      maxStepCount = Math.max(maxStepCount, pattern.getStepCount());
+    }
+    m_maxStepCount = maxStepCount;
+  }
+
+  public static AutoPatternSet empty() {
+    return new AutoPatternSet(new ArrayList<>());
+  }
+
+  /**
+   * Reads and parses a pattern file.
+   *
+   * @throws IOException              when the file cannot be read
+   * @throws IllegalArgumentException when the file does not parse, with file and line in the message
+   */
+  public static AutoPatternSet load(File file) throws IOException {
+    return parse(file.getName(), Files.readAllLines(file.toPath()));
+  }
+
+  /**
+   * Parses the lines of a pattern file.
+   *
+   * @param source file name used in error messages
+   * @throws IllegalArgumentException when a line does not parse
+   */
+  public static AutoPatternSet parse(String source, List<String> lines) {
+    Map<String, Step> steps = new HashMap<>();
+    List<Pattern> patterns = new ArrayList<>();
+
+    for (int lineIx = 0; lineIx < lines.size(); lineIx++) {
+      String line = lines.get(lineIx);
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      line = line.trim();
+      if (line.isEmpty()) {
+        continue;
+      }
+      String where = source + ":" + (lineIx + 1) + " - ";
+      String[] tokens = line.split("\\s+");
+      if (tokens.length < 2) {
+        throw new IllegalArgumentException(where + "missing name");
+      }
+      switch (tokens[0]) {
+        case "step":
+          if (steps.containsKey(tokens[1])) {
+            throw new IllegalArgumentException(where + "duplicate step " + tokens[1]);
+          }
+          steps.put(tokens[1], parseStep(where, tokens));
+          break;
+        case "pattern":
+          if (patterns.size() >= kMAX_PATTERNS) {
+            throw new IllegalArgumentException(where + "more than " + kMAX_PATTERNS + " patterns");
+          }
+          patterns.add(parsePattern(where, tokens, steps));
+          break;
+        default:
+          throw new IllegalArgumentException(where + "expected step or pattern, found " + tokens[0]);
+      }
+    }
+    return new AutoPatternSet(patterns);
+  }
+
+  private static Step parseStep(String where, String[] tokens) {
+    if (tokens.length < 3 || tokens[2].length() != 1 || kSTEP_TYPES.indexOf(tokens[2].charAt(0)) < 0) {
+      throw new IllegalArgumentException(where + "step " + tokens[1] + " needs a type, one of " + kSTEP_TYPES);
+    }
+    char type = tokens[2].charAt(0);
+
+    double waitTime = 0.0;
+    boolean isWaitFromSwitch = false;
+    if (tokens.length > 3) {
+      if (tokens[3].equals(kWAIT_SWITCH)) {
+        isWaitFromSwitch = true;
+      } else {
+        try {
+          waitTime = Double.parseDouble(tokens[3]);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(where + "bad wait time " + tokens[3]);
+        }
+        if (waitTime < 0.0) {
+          throw new IllegalArgumentException(where + "negative wait time " + tokens[3]);
+        }
+      }
+    }
+
+    List<Integer> switchesOn = new ArrayList<>();
+    List<Integer> switchesOff = new ArrayList<>();
+    for (int ix = 4; ix < tokens.length; ix++) {
+      boolean isOff = tokens[ix].startsWith("!");
+      int button;
+      try {
+        button = Integer.parseInt(isOff ? tokens[ix].substring(1) : tokens[ix]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(where + "bad switch " + tokens[ix]);
+      }
+      if (button < 1 || button > kMAX_SWITCH) {
+        throw new IllegalArgumentException(where + "switch " + button + " outside 1.." + kMAX_SWITCH);
+      }
+      (isOff ? switchesOff : switchesOn).add(button);
+    }
+    return new Step(tokens[1], type, waitTime, isWaitFromSwitch, toArray(switchesOn), toArray(switchesOff));
+  }
+
+  private static Pattern parsePattern(String where, String[] tokens, Map<String, Step> steps) {
+    List<Step> patternSteps = new ArrayList<>();
+    int groupCount = tokens.length - 2;
+    int[] groupStarts = new int[groupCount + 1];
+    char[] groupTypes = new char[groupCount];
+
+    for (int group = 0; group < groupCount; group++) {
+      String token = tokens[group + 2];
+      boolean isParallel = token.indexOf(kGROUP_PARALLEL) >= 0;
+      boolean isDeadline = token.indexOf(kGROUP_DEADLINE) >= 0;
+      if (isParallel && isDeadline) {
+        throw new IllegalArgumentException(where + "group " + token + " mixes + and /");
+      }
+      groupTypes[group] = isParallel ? kGROUP_PARALLEL : isDeadline ? kGROUP_DEADLINE : kGROUP_SINGLE;
+      groupStarts[group] = patternSteps.size();
+
+      String[] names = token.split("[+/]", -1);
+      int pathSteps = 0;
+      for (int member = 0; member < names.length; member++) {
+        Step step = steps.get(names[member]);
+        if (step == null) {
+          throw new IllegalArgumentException(where + "pattern " + tokens[1] + " uses undefined step " + names[member]);
+        }
+        if (step.isPathStep() && ++pathSteps > 1) {
+          throw new IllegalArgumentException(where + "group " + token + " has more than one path step");
+        }
+        // a pre-spin runs until interrupted, only a deadline can end it
+        if (step.getType() == kPRESPIN && (!isDeadline || member == 0)) {
+          throw new IllegalArgumentException(where + "pre-spin step " + step.getName()
+              + " must follow the deadline step of a / group");
+        }
+        patternSteps.add(step);
+      }
+    }
+    groupStarts[groupCount] = patternSteps.size();
+
+    if (patternSteps.size() > kMAX_STEPS) {
+      throw new IllegalArgumentException(where + "pattern " + tokens[1] + " has more than " + kMAX_STEPS + " steps");
+    }
+    return new Pattern(tokens[1], patternSteps.toArray(new Step[0]), groupStarts, groupTypes);
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    int[] array = new int[values.size()];
+    for (int ix = 0; ix < array.length; ix++) {
+      array[ix] = values.get(ix);
+    }
+    return array;
+  }
+
+  /**
+   * Checks every drive and intake step used by a pattern against the available paths.
+   *
+   * @param pathNames path file names without extension
+   * @return one message per missing path, empty when all paths exist
+   */
+  public List<String> validate(Set<String> pathNames) {
+    List<String> problems = new ArrayList<>();
+    for (Pattern pattern : m_patterns) {
+      for (Step step : pattern.m_steps) {
+        if (step.isPathStep() && !pathNames.contains(step.getName())) {
+          problems.add("pattern " + pattern.getName() + " step " + step.getName() + " - path file missing or does not parse");
+        }
+      }
+    }
+    return problems;
+  }
+
+  public int getPatternCount() {
+    return m_patterns.size();
+  }
+
+  public Pattern getPattern(int ix) {
+    return m_patterns.get(ix);
+  }
+
+  /** Most steps in any one pattern. */
+  public int getMaxStepCount() {
+    return m_maxStepCount;
+  }
+}
@@ -2,32 +2,108 @@ package frc.robot.libraries;
 
 import java.util.function.BooleanSupplier;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
+import edu.wpi.first.wpilibj.RobotController;
 
-/** Add your docs here. */
+/**
+ * Autonomous selection console - two rotary switches on POV 0 and 1 and the toggle switches.
+ *
+ * <p>The switch state is debounced: {@link #pollChanges()} reads the raw inputs and only
+ * takes a new state once it has held for {@link #kDEBOUNCE_SECONDS}, so a rotary switch
+ * passing through its positions or a bouncing toggle gives one change, not several.
+ * The rotary and button getters return the debounced state.
+ */
 public class ConsoleAuto extends GenericHID {
 
     private static final int kPOV_SW_0 = 0;
     private static final int kPOV_SW_1 = 1;
+    private static final double kDEBOUNCE_SECONDS = 0.1;
+    private static final long kDEBOUNCE_MICROS = (long) (kDEBOUNCE_SECONDS * 1e6);
+
+    // raw state waiting out the debounce time
+    private int m_rawPov0;
+    private int m_rawPov1;
+    private int m_rawButtons;
+    private long m_rawSinceMicros;
+
+    // debounced state
+    private int m_pov0;
+    private int m_pov1;
+    private int m_buttons;
+    private boolean m_hasState = false;
+    private long m_rawChangeMicros;
 
     public ConsoleAuto(final int port) {
         super(port);
     }
 
+    /**
+     * Reads the switches and updates the debounced state. Call once per loop while selecting.
+     *
+     * @return true when the debounced state changed - always true on the first call
+     */
+    public boolean pollChanges() {
+        long now = RobotController.getFPGATime();
+        int pov0 = getPOV(kPOV_SW_0);
+        int pov1 = getPOV(kPOV_SW_1);
+        int buttons = DriverStation.getStickButtons(getPort());
+
+        if (!m_hasState) {
+            m_rawPov0 = pov0;
+            m_rawPov1 = pov1;
+            m_rawButtons = buttons;
+            m_rawSinceMicros = now;
+            return takeRawState();
+        }
+        if (pov0 != m_rawPov0 || pov1 != m_rawPov1 || buttons != m_rawButtons) {
+            m_rawPov0 = pov0;
+            m_rawPov1 = pov1;
+            m_rawButtons = buttons;
+            m_rawSinceMicros = now;
+            return false;
+        }
+        if (pov0 == m_pov0 && pov1 == m_pov1 && buttons == m_buttons) {
+            return false;
+        }
+        if (now - m_rawSinceMicros < kDEBOUNCE_MICROS) {
+            return false;
+        }
+        return takeRawState();
+    }
+
+    private boolean takeRawState() {
+        m_pov0 = m_rawPov0;
+        m_pov1 = m_rawPov1;
+        m_buttons = m_rawButtons;
+        m_hasState = true;
+        m_rawChangeMicros = m_rawSinceMicros;
+        return true;
+    }
+
+    /**
+     * FPGA time in microseconds the inputs of the current debounced state first read,
+     * for measuring the latency from a switch flip to its effect.
+     */
+    public long getChangeTimeMicros() {
+        return m_rawChangeMicros;
+    }
+
     public int getROT_SW_0() {
-        return this.getPOV(kPOV_SW_0) / 45;
+        return m_pov0 / 45;
     }
 
     public int getROT_SW_1() {
-        return this.getPOV(kPOV_SW_1) / 45;
+        return m_pov1 / 45;
     }
 
     public boolean getButton(int button) {
-        return this.getRawButton(button);
+        return (m_buttons & (1 << (button - 1))) != 0;
     }
 
+    /* Raw, not debounced - for triggers */
     public BooleanSupplier getSwitchSupplier(int button) {
         return () -> this.getRawButton(button);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,179 @@
+package frc.robot.libraries;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import frc.utils.LoopTiming;
+
+/*
+ * PathCache loads and parses every PathPlanner path in deploy/pathplanner/paths
+ * once, on a low priority background thread started while the robot is disabled.
+ * Building the autonomous command then only hands out cached PathPlannerPath
+ * instances - no file I/O or JSON parsing in autonomousInit.
+ * Once the alliance is known to be red, a second background pass stores every
+ * path already flipped to the red side, so nothing is flipped while following.
+ * The getters never wait for the load - until isLoaded() they report no paths,
+ * so the robot loop is never stalled; callers rebuild once the load is done.
+ */
+public class PathCache {
+
+  private static final String kPATH_FOLDER = "pathplanner/paths";
+  private static final String kPATH_EXTENSION = ".path";
+
+  private final Map<String, PathPlannerPath> m_paths = new ConcurrentHashMap<>();
+  private final Map<String, PathPlannerPath> m_redPaths = new ConcurrentHashMap<>();
+  private volatile Thread m_loadThread;
+  private volatile boolean m_isLoaded = false;
+  private Thread m_flipThread;
+
+  // background passes, no loop budget - recorded for the load and flip times only
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final int m_loadChannel = m_loopTiming.register("PathCache/Load", Double.POSITIVE_INFINITY);
+  private final int m_flipChannel = m_loopTiming.register("PathCache/Flip", Double.POSITIVE_INFINITY);
+
+  /**
+   * Starts the background load of all deployed paths. Only the first call starts
+   * the loader, later calls are ignored.
+   */
+  public synchronized void preloadAsync() {
+    if (m_loadThread != null) {
+      return;
+    }
+    m_loadThread = new Thread(this::loadAll, "PathCache");
+    m_loadThread.setDaemon(true);
+    m_loadThread.setPriority(Thread.MIN_PRIORITY);
+    m_loadThread.start();
+  }
+
+  private void loadAll() {
+    long startTime = System.nanoTime();
+
+    File pathFolder = new File(Filesystem.getDeployDirectory(), kPATH_FOLDER);
+    File[] pathFiles = pathFolder.listFiles((dir, name) -> name.endsWith(kPATH_EXTENSION));
+    if (pathFiles == null) {
+      DriverStation.reportWarning("PathCache - no path folder " + pathFolder.getAbsolutePath(), false);
+      pathFiles = new File[0];
+    }
+
+    for (File pathFile : pathFiles) {
+      String fileName = pathFile.getName();
+      loadPath(fileName.substring(0, fileName.length() - kPATH_EXTENSION.length()));
+    }
+
+    m_isLoaded = true;
+    m_loopTiming.record(m_loadChannel, (System.nanoTime() - startTime) * 1e-6);
+  }
+
+  /**
+   * Starts the background pass that stores a red alliance (flipped) copy of
+   * every path. Only the first call starts it, later calls are ignored.
+   */
+  public synchronized void prepareRedAsync() {
+    if (m_flipThread != null) {
+      return;
+    }
+    m_flipThread = new Thread(this::flipAll, "PathCacheFlip");
+    m_flipThread.setDaemon(true);
+    m_flipThread.setPriority(Thread.MIN_PRIORITY);
+    m_flipThread.start();
+  }
+
+  private void flipAll() {
+    awaitLoaded();
+    long startTime = System.nanoTime();
+    for (String pathName : m_paths.keySet()) {
+      getRedPath(pathName, m_paths.get(pathName));
+    }
+    m_loopTiming.record(m_flipChannel, (System.nanoTime() - startTime) * 1e-6);
+  }
+
+  private PathPlannerPath getRedPath(String pathName, PathPlannerPath bluePath) {
+    return m_redPaths.computeIfAbsent(pathName, name -> bluePath.flipPath());
+  }
+
+  private PathPlannerPath loadPath(String pathName) {
+    try {
+      PathPlannerPath path = PathPlannerPath.fromPathFile(pathName);
+      m_paths.put(pathName, path);
+      return path;
+    } catch (RuntimeException e) {
+      DriverStation.reportError("PathCache - unable to load path " + pathName + ": " + e.getMessage(), false);
+      return null;
+    }
+  }
+
+  /**
+   * Blocks until the background load has finished. Not for the robot loop - only
+   * for background threads and offline tools that need every path.
+   */
+  public void awaitLoaded() {
+    Thread loadThread = m_loadThread;
+    if (m_isLoaded || loadThread == null) {
+      return;
+    }
+    try {
+      loadThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the cached path with the given name (as named in the PathPlanner GUI).
+   * A path that was not preloaded is loaded directly as a fallback.
+   *
+   * @param pathName path file name without extension
+   * @return the path, or null when the path file does not exist, does not parse
+   *         or the background load has not finished yet
+   */
+  public PathPlannerPath getPath(String pathName) {
+    if (m_loadThread != null && !m_isLoaded) {
+      DriverStation.reportWarning("PathCache - " + pathName + " requested before the paths finished loading", false);
+      return null;
+    }
+    PathPlannerPath path = m_paths.get(pathName);
+    if (path == null && m_loadThread == null) {
+      DriverStation.reportWarning("PathCache - " + pathName + " not preloaded, loading from file", false);
+      path = loadPath(pathName);
+    }
+    return path;
+  }
+
+  /**
+   * Returns the cached path for the alliance, ready to follow without flipping.
+   * A red path not flipped yet by the background pass is flipped here once.
+   *
+   * @param pathName path file name without extension
+   * @param isRed    true for the red alliance copy
+   * @return the path, or null when the path file does not exist or does not parse
+   */
+  public PathPlannerPath getPath(String pathName, boolean isRed) {
+    PathPlannerPath path = getPath(pathName);
+    if (path == null || !isRed) {
+      return path;
+    }
+    return getRedPath(pathName, path);
+  }
+
+  /** False for every path until the background load has finished. */
+  public boolean hasPath(String pathName) {
+    return m_isLoaded && m_paths.containsKey(pathName);
+  }
+
+  /** Empty until the background load has finished. */
+  public Set<String> getPathNames() {
+    return m_isLoaded ? Collections.unmodifiableSet(m_paths.keySet()) : Collections.emptySet();
+  }
+
+  public boolean isLoaded() {
+    return m_isLoaded;
+  }
+}
@@ -0,0 +1,113 @@
+package frc.robot.libraries;
+
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/*
+ * SampledTrajectory is a PathPlanner trajectory generated ahead of time and
+ * resampled at a fixed period into one flat array of primitives.
+ * Sampling is an index computation and a linear interpolation between two
+ * neighbouring samples - no search, no allocation - so the follower's cost
+ * does not depend on the trajectory length.
+ *
+ * Each sample holds the field relative (blue origin) target:
+ *   x, y (m), holonomic rotation (rad), vx, vy (m/s), omega (rad/s)
+ */
+public class SampledTrajectory {
+
+  public static final int kX = 0;
+  public static final int kY = 1;
+  public static final int kROTATION = 2;
+  public static final int kVX = 3;
+  public static final int kVY = 4;
+  public static final int kOMEGA = 5;
+  public static final int kSTRIDE = 6;
+
+  private final double[] m_samples;
+  private final int m_sampleCount;
+  private final double m_period;
+  private final double m_duration;
+
+  private SampledTrajectory(double[] samples, int sampleCount, double period, double duration) {
+    m_samples = samples;
+    m_sampleCount = sampleCount;
+    m_period = period;
+    m_duration = duration;
+  }
+
+  /**
+   * Generates the path's trajectory, starting at rest, and resamples it.
+   *
+   * @param path          path to follow, already flipped for the alliance
+   * @param startRotation holonomic rotation of the robot when the segment starts
+   * @param period        sample period in seconds
+   */
+  public static SampledTrajectory fromPath(PathPlannerPath path, Rotation2d startRotation, double period) {
+    PathPlannerTrajectory trajectory = path.getTrajectory(new ChassisSpeeds(), startRotation);
+    double duration = trajectory.getTotalTimeSeconds();
+    int sampleCount = (int) Math.ceil(duration / period) + 1;
+    double[] samples = new double[sampleCount * kSTRIDE];
+
+    for (int ix = 0; ix < sampleCount; ix++) {
+      PathPlannerTrajectory.State state = trajectory.sample(Math.min(ix * period, duration));
+      int base = ix * kSTRIDE;
+      samples[base + kX] = state.positionMeters.getX();
+      samples[base + kY] = state.positionMeters.getY();
+      samples[base + kROTATION] = state.targetHolonomicRotation.getRadians();
+      samples[base + kVX] = state.velocityMps * state.heading.getCos();
+      samples[base + kVY] = state.velocityMps * state.heading.getSin();
+    }
+    // angular velocity from the rotation targets, central differences
+    for (int ix = 0; ix < sampleCount; ix++) {
+      int previous = Math.max(ix - 1, 0);
+      int next = Math.min(ix + 1, sampleCount - 1);
+      if (next == previous) {
+        continue;
+      }
+      double deltaRotation = MathUtil.angleModulus(
+          samples[next * kSTRIDE + kROTATION] - samples[previous * kSTRIDE + kROTATION]);
+      samples[ix * kSTRIDE + kOMEGA] = deltaRotation / ((next - previous) * period);
+    }
+    // the end state is at rest
+    int last = (sampleCount - 1) * kSTRIDE;
+    samples[last + kVX] = 0.0;
+    samples[last + kVY] = 0.0;
+    samples[last + kOMEGA] = 0.0;
+
+    return new SampledTrajectory(samples, sampleCount, period, duration);
+  }
+
+  /**
+   * Interpolates the target at a time into the caller's buffer.
+   *
+   * @param time   seconds since the start, clamped to the trajectory
+   * @param sample buffer of at least kSTRIDE values
+   */
+  public void sample(double time, double[] sample) {
+    double position = MathUtil.clamp(time, 0.0, m_duration) / m_period;
+    int index = Math.min((int) position, m_sampleCount - 1);
+    int next = Math.min(index + 1, m_sampleCount - 1);
+    double fraction = position - index;
+    int base = index * kSTRIDE;
+    int nextBase = next * kSTRIDE;
+    for (int ix = 0; ix < kSTRIDE; ix++) {
+      sample[ix] = m_samples[base + ix] + (m_samples[nextBase + ix] - m_samples[base + ix]) * fraction;
+    }
+    // rotation interpolates across the +-pi wrap
+    sample[kROTATION] = MathUtil.angleModulus(m_samples[base + kROTATION]
+        + MathUtil.angleModulus(m_samples[nextBase + kROTATION] - m_samples[base + kROTATION]) * fraction);
+  }
+
+  public double getDuration() {
+    return m_duration;
+  }
+
+  /** Holonomic rotation at the end of the trajectory in radians. */
+  public double getEndRotation() {
+    return m_samples[(m_sampleCount - 1) * kSTRIDE + kROTATION];
+  }
+}
@@ -0,0 +1,63 @@
+package frc.robot.libraries;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+import frc.utils.LoopTiming;
+
+/*
+ * TrajectoryCache keeps the SampledTrajectory generated for each path step, keyed
+ * by path, alliance and the robot rotation the step starts from.  Steps are
+ * generated while the autonomous command is built in disabled, so switching
+ * between path segments in autonomous never waits on trajectory generation.
+ * Main thread only.
+ */
+public class TrajectoryCache {
+
+  private final PathCache m_pathCache;
+  private final double m_period;
+  private final Map<String, SampledTrajectory> m_trajectories = new HashMap<>();
+
+  // generation runs in the disabled robot loop, so it is held to the loop budget
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final int m_generateChannel = m_loopTiming.register("TrajectoryCache/Generate");
+
+  /**
+   * @param period sample period of the generated trajectories in seconds
+   */
+  public TrajectoryCache(PathCache pathCache, double period) {
+    m_pathCache = pathCache;
+    m_period = period;
+  }
+
+  /**
+   * Returns the trajectory for a path step, generating it on first use.
+   *
+   * @param pathName      path file name without extension
+   * @param isRed         true for the red alliance (flipped) path
+   * @param startRotation robot rotation at the start of the step, or null for the
+   *                      path's own preview starting rotation
+   * @return the trajectory, or null when the path does not exist
+   */
+  public SampledTrajectory getTrajectory(String pathName, boolean isRed, Rotation2d startRotation) {
+    PathPlannerPath path = m_pathCache.getPath(pathName, isRed);
+    if (path == null) {
+      return null;
+    }
+    Rotation2d rotation = startRotation != null
+        ? startRotation : path.getPreviewStartingHolonomicPose().getRotation();
+    String key = pathName + (isRed ? "/red/" : "/blue/") + Math.round(rotation.getDegrees());
+    SampledTrajectory trajectory = m_trajectories.get(key);
+    if (trajectory == null) {
+      long startTime = System.nanoTime();
+      trajectory = SampledTrajectory.fromPath(path, rotation, m_period);
+      m_trajectories.put(key, trajectory);
+      m_loopTiming.record(m_generateChannel, (System.nanoTime() - startTime) * 1e-6);
+    }
+    return trajectory;
+  }
+}
@@ -0,0 +1,211 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import frc.robot.Constants.AutoConstants;
+import frc.robot.libraries.AutoPatternSet;
+import frc.robot.libraries.AutoPatternSet.Pattern;
+import frc.robot.libraries.AutoPatternSet.Step;
+import frc.robot.libraries.PathCache;
+import frc.robot.libraries.SampledTrajectory;
+import frc.robot.libraries.TrajectoryCache;
+
+/**
+ * Offline check of the autonomous patterns in deploy/auto/patterns.txt.
+ *
+ * <p>Loads the deployed paths through PathCache and, for every pattern and every combination
+ * of the ConsoleAuto switches its steps depend on, checks that each path step's path exists
+ * and parses and estimates the run time: trajectory durations (generated the way the drive
+ * generates them, each segment starting from the rotation the previous one ends at), wait
+ * times with the wait switch at its highest position, and the shoot timeout per shoot step.
+ * Parallel groups take their longest step, deadline groups their deadline step.
+ *
+ * <p>Exits with status 1 when a path is missing or any combination runs longer than the
+ * autonomous period, failing the Gradle build.
+ *
+ * <p>Run with {@code ./gradlew validateAutoPatterns} for the per pattern report.  The unit tests
+ * (AutoPatternValidatorTest) run the same checks on the deployed patterns and paths, so
+ * {@code ./gradlew check} fails on a missing path or a combination that runs too long.
+ */
+public final class AutoPatternValidator {
+
+    private final PathCache m_pathCache = new PathCache();
+    private final TrajectoryCache m_trajectoryCache =
+            new TrajectoryCache(m_pathCache, AutoConstants.kTrajectorySamplePeriod);
+    private final List<String> m_problems = new ArrayList<>();
+    private Rotation2d m_rotation;
+
+    AutoPatternValidator() {}
+
+    public static void main(String... args) throws IOException {
+        RobotLoop.initSimulation();
+
+        AutoPatternValidator validator = new AutoPatternValidator();
+        try {
+            validator.validate(AutoPatternSet.load(getPatternFile()));
+        } catch (IllegalArgumentException e) {
+            validator.m_problems.add(e.getMessage());
+        }
+
+        for (String problem : validator.m_problems) {
+            System.out.println("ERROR - " + problem);
+        }
+        System.exit(validator.m_problems.isEmpty() ? 0 : 1);
+    }
+
+    /* The deployed pattern file - the HAL has to be initialized for the deploy directory */
+    static File getPatternFile() {
+        return new File(Filesystem.getDeployDirectory(), AutoPatternSet.kDEPLOY_FILE);
+    }
+
+    /* Loads the deployed paths, one message per pattern step whose path is missing or does not parse */
+    List<String> checkPaths(AutoPatternSet patterns) {
+        m_pathCache.preloadAsync();
+        m_pathCache.awaitLoaded();
+        return patterns.validate(m_pathCache.getPathNames());
+    }
+
+    private void validate(AutoPatternSet patterns) {
+        m_problems.addAll(checkPaths(patterns));
+        if (!m_problems.isEmpty()) {
+            return;
+        }
+
+        for (int ix = 0; ix < patterns.getPatternCount(); ix++) {
+            validatePattern(ix, patterns.getPattern(ix));
+        }
+    }
+
+    /* Every on/off combination of the switches the pattern's steps depend on */
+    private void validatePattern(int patternIx, Pattern pattern) {
+        int[] switches = getSwitches(pattern);
+        double longest = 0.0;
+        int longestMask = 0;
+        for (int mask = 0; mask < 1 << switches.length; mask++) {
+            double duration = estimateDuration(pattern, switches, mask);
+            if (duration > longest) {
+                longest = duration;
+                longestMask = mask;
+            }
+            if (duration > AutoConstants.kAutoPeriodSeconds) {
+                m_problems.add(String.format(Locale.ROOT, "pattern %d %s with switches on [%s] runs %.2f s, over %.1f s",
+                        patternIx, pattern.getName(), switchText(switches, mask), duration,
+                        AutoConstants.kAutoPeriodSeconds));
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d %-16s %3d combinations, longest %5.2f s with switches on [%s]%n",
+                patternIx, pattern.getName(), 1 << switches.length, longest, switchText(switches, longestMask));
+    }
+
+    /* Run time of the pattern with the switches in the mask on, from the deployed paths */
+    double estimateDuration(Pattern pattern, int[] switches, int mask) {
+        m_rotation = null; // first path starts at its own starting rotation
+        return estimateDuration(pattern, switches, mask, this::estimateStep);
+    }
+
+    /*
+     * Run time of the pattern with the switches in the mask on.  Every step that is on gets
+     * its time from stepTime in pattern order, including the steps a deadline cuts off.
+     */
+    static double estimateDuration(Pattern pattern, int[] switches, int mask, ToDoubleFunction<Step> stepTime) {
+        double duration = 0.0;
+        for (int group = 0; group < pattern.getGroupCount(); group++) {
+            int start = pattern.getGroupStart(group);
+            if (pattern.getGroupType(group) == AutoPatternSet.kGROUP_DEADLINE) {
+                // the deadline step sets the time, the others are cut off - unless it is switched off
+                if (isStepOn(pattern.getStep(start), switches, mask)) {
+                    duration += stepTime.applyAsDouble(pattern.getStep(start));
+                    for (int ix = start + 1; ix < pattern.getGroupEnd(group); ix++) {
+                        if (isStepOn(pattern.getStep(ix), switches, mask)) {
+                            stepTime.applyAsDouble(pattern.getStep(ix));
+                        }
+                    }
+                }
+                continue;
+            }
+            double groupDuration = 0.0;
+            for (int ix = start; ix < pattern.getGroupEnd(group); ix++) {
+                if (isStepOn(pattern.getStep(ix), switches, mask)) {
+                    groupDuration = Math.max(groupDuration, stepTime.applyAsDouble(pattern.getStep(ix)));
+                }
+            }
+            duration += groupDuration;
+        }
+        return duration;
+    }
+
+    /* Longest time the step can take; path steps also advance the sequence rotation */
+    private double estimateStep(Step step) {
+        switch (step.getType()) {
+            case AutoPatternSet.kWAIT:
+                return step.isWaitFromSwitch() ? AutoConstants.kWaitSwitchMax : step.getWaitTime();
+            case AutoPatternSet.kDRIVE:
+            case AutoPatternSet.kINTAKE:
+                SampledTrajectory trajectory = m_trajectoryCache.getTrajectory(step.getName(), false, m_rotation);
+                m_rotation = Rotation2d.fromRadians(trajectory.getEndRotation());
+                // an intake step waits up to its wait time for the note at the end of the path
+                return trajectory.getDuration() + (step.getType() == AutoPatternSet.kINTAKE ? step.getWaitTime() : 0.0);
+            case AutoPatternSet.kSHOOT:
+                return AutoConstants.kShootNoteTimeout;
+            default:
+                return 0.0;
+        }
+    }
+
+    private static boolean isStepOn(Step step, int[] switches, int mask) {
+        for (int ix = 0; ix < step.getSwitchOnCount(); ix++) {
+            if (!isSwitchOn(step.getSwitchOn(ix), switches, mask)) {
+                return false;
+            }
+        }
+        for (int ix = 0; ix < step.getSwitchOffCount(); ix++) {
+            if (isSwitchOn(step.getSwitchOff(ix), switches, mask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSwitchOn(int button, int[] switches, int mask) {
+        for (int ix = 0; ix < switches.length; ix++) {
+            if (switches[ix] == button) {
+                return (mask & (1 << ix)) != 0;
+            }
+        }
+        return false;
+    }
+
+    /* Buttons the pattern's steps depend on, ascending - bit ix of a mask is switches[ix] */
+    static int[] getSwitches(Pattern pattern) {
+        TreeSet<Integer> buttons = new TreeSet<>();
+        for (int ix = 0; ix < pattern.getStepCount(); ix++) {
+            Step step = pattern.getStep(ix);
+            for (int sw = 0; sw < step.getSwitchOnCount(); sw++) {
+                buttons.add(step.getSwitchOn(sw));
+            }
+            for (int sw = 0; sw < step.getSwitchOffCount(); sw++) {
+                buttons.add(step.getSwitchOff(sw));
+            }
+        }
+        return buttons.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String switchText(int[] switches, int mask) {
+        StringBuilder text = new StringBuilder();
+        for (int ix = 0; ix < switches.length; ix++) {
+            if ((mask & (1 << ix)) != 0) {
+                text.append(text.length() == 0 ? "" : " ").append(switches[ix]);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package frc.robot.replay;
+
+import frc.robot.subsystems.GyroIO;
+
+/**
+ * Gyro inputs from the "Drive/GyroInputs" signal.
+ * reset() does nothing - the logged angles already include any reset.
+ */
+public class GyroIOReplay implements GyroIO {
+
+    private final ReplaySource m_source;
+    private final int m_signal;
+
+    public GyroIOReplay(ReplaySource source) {
+        m_source = source;
+        m_signal = source.requireSignal("Drive/GyroInputs");
+    }
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs) {
+        double[] values = m_source.get(m_signal);
+        if (values != null) {
+            inputs.angleDegrees = values[0];
+        }
+    }
+}
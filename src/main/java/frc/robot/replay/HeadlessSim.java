@@ -0,0 +1,104 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+import frc.robot.Constants.OIConstants;
+import frc.robot.Robot;
+import frc.robot.RobotContainer;
+
+/**
+ * Headless accelerated simulation of an autonomous run.
+ *
+ * <p>Builds the normal RobotContainer on the desktop physics models (ModuleIOSim, GyroIOSim,
+ * IntakeIOSim, ShooterIOSim) and steps a scripted match - disabled while the auto is selected
+ * on the ConsoleAuto switches, autonomous, then disabled again - as fast as the desktop runs
+ * it, with no GUI or driver station.  Used for path tuning and regression runs.
+ *
+ * <p>Arguments, all optional: pattern switch, wait switch, console button mask (hex),
+ * alliance station (e.g. Red1, Blue2), autonomous seconds, output folder.
+ *
+ * <p>Outputs in the output folder (default build/sim):
+ * <pre>
+ *   sim_pose.csv      time_s, x, y, rot
+ *   sim_commands.csv  time_s, event, command
+ * </pre>
+ *
+ * <p>Run with {@code ./gradlew simHeadless -Pargs="1 0 ff Blue2"}.
+ */
+public final class HeadlessSim {
+
+    private static final double kLOOP_PERIOD = 0.02;
+    private static final double kDISABLED_SECONDS = 2.0; // time for path loading and auto selection
+    private static final double kAFTER_SECONDS = 1.0;
+
+    private HeadlessSim() {}
+
+    public static void main(String... args) throws IOException {
+        int pattern = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int wait = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int buttons = args.length > 2 ? Integer.parseInt(args[2], 16) : 0xff;
+        AllianceStationID station = args.length > 3
+                ? AllianceStationID.valueOf(args[3]) : AllianceStationID.Blue1;
+        double autoSeconds = args.length > 4 ? Double.parseDouble(args[4]) : 15.0;
+        File outFolder = new File(args.length > 5 ? args[5] : "build/sim");
+        outFolder.mkdirs();
+
+        RobotLoop.initSimulation();
+        DriverStationSim.setAllianceStationId(station);
+        setConsole(pattern, wait, buttons);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        RobotContainer[] container = new RobotContainer[1];
+        RobotLoop robotLoop = new RobotLoop(new Robot(() -> {
+            container[0] = new RobotContainer();
+            return container[0];
+        }));
+
+        long wallStart = System.nanoTime();
+        try (PrintWriter poseOut = new PrintWriter(new File(outFolder, "sim_pose.csv"));
+                PrintWriter commandOut = new PrintWriter(new File(outFolder, "sim_commands.csv"))) {
+            RobotLoop.writeCommandTimeline(commandOut);
+            poseOut.println("time_s,x,y,rot");
+
+            double autoStart = kDISABLED_SECONDS;
+            double autoEnd = autoStart + autoSeconds;
+            double end = autoEnd + kAFTER_SECONDS;
+            for (double time = 0.0; time < end; time += kLOOP_PERIOD) {
+                boolean isAuto = time >= autoStart && time < autoEnd;
+                DriverStationSim.setAutonomous(isAuto);
+                DriverStationSim.setEnabled(isAuto);
+                DriverStationSim.notifyNewData();
+
+                SimHooks.stepTiming(kLOOP_PERIOD);
+                robotLoop.runLoop();
+
+                Pose2d pose = container[0].getPose();
+                poseOut.printf(Locale.ROOT, "%.6f,%.4f,%.4f,%.4f%n", RobotController.getFPGATime() * 1e-6,
+                        pose.getX(), pose.getY(), pose.getRotation().getRadians());
+            }
+        }
+        System.out.printf(Locale.ROOT, "HeadlessSim - pattern %d, %.1f s simulated in %.1f s%n",
+                pattern, kDISABLED_SECONDS + autoSeconds + kAFTER_SECONDS, (System.nanoTime() - wallStart) * 1e-9);
+        System.exit(0);
+    }
+
+    /* ConsoleAuto - rotary switches on POV 0 and 1 (45 degrees per position), toggles on the buttons */
+    private static void setConsole(int pattern, int wait, int buttons) {
+        int port = OIConstants.kAUTONOMOUS_CONSOLE_PORT;
+        DriverStationSim.setJoystickPOVCount(port, 2);
+        DriverStationSim.setJoystickPOV(port, 0, pattern * 45);
+        DriverStationSim.setJoystickPOV(port, 1, wait * 45);
+        DriverStationSim.setJoystickButtonCount(port, 12);
+        DriverStationSim.setJoystickButtons(port, buttons);
+    }
+}
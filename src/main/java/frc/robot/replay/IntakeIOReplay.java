@@ -0,0 +1,28 @@
+package frc.robot.replay;
+
+import frc.robot.subsystems.IntakeIO;
+
+/**
+ * Intake limit switches from the "Intake/State" signal
+ * (forward limit, reverse limit, note captured, spinner speed, lift speed).
+ */
+public class IntakeIOReplay implements IntakeIO {
+
+    private final ReplaySource m_source;
+    private final int m_signal;
+
+    public IntakeIOReplay(ReplaySource source) {
+        m_source = source;
+        m_signal = source.requireSignal("Intake/State");
+    }
+
+    @Override
+    public void updateInputs(IntakeIOInputs inputs) {
+        double[] values = m_source.get(m_signal);
+        if (values != null) {
+            inputs.isForwardLimit = values[0] != 0.0;
+            inputs.isReverseLimit = values[1] != 0.0;
+            inputs.isNoteLoaded = values[2] != 0.0;
+        }
+    }
+}
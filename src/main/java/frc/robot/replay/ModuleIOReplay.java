@@ -0,0 +1,34 @@
+package frc.robot.replay;
+
+import frc.robot.subsystems.ModuleIO;
+
+/**
+ * Swerve module inputs from the "Drive/ModuleInputs" signal.
+ * Outputs are dropped - the log already holds what the hardware did with them.
+ */
+public class ModuleIOReplay implements ModuleIO {
+
+    private final ReplaySource m_source;
+    private final int m_signal;
+    private final int m_offset;
+
+    /**
+     * @param moduleIndex 0 front left, 1 front right, 2 rear left, 3 rear right.
+     */
+    public ModuleIOReplay(ReplaySource source, int moduleIndex) {
+        m_source = source;
+        m_signal = source.requireSignal("Drive/ModuleInputs");
+        m_offset = moduleIndex * 3;
+    }
+
+    @Override
+    public void updateInputs(ModuleIOInputs inputs) {
+        double[] values = m_source.get(m_signal);
+        if (values == null) {
+            return; // not logged this loop, hold the last inputs
+        }
+        inputs.drivePositionMeters = values[m_offset];
+        inputs.driveVelocityMetersPerSec = values[m_offset + 1];
+        inputs.turnPositionRad = values[m_offset + 2];
+    }
+}
@@ -0,0 +1,193 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+import frc.robot.Robot;
+import frc.robot.RobotContainer;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.NoteIntakeSubsystem;
+import frc.robot.subsystems.NoteShooterSubsystem;
+import frc.robot.subsystems.ShooterIO;
+import frc.utils.TelemetryLogReader;
+import frc.utils.TelemetryLogReader.Frame;
+
+/**
+ * Offline replay of a telemetry log through the robot code.
+ *
+ * <p>Runs on the desktop against the simulated HAL with timing paused.  For every logged loop
+ * the sim clock is stepped to the loop's timestamp, the driver station state and joysticks
+ * (driver controller and ConsoleAuto) are set from the log, and Robot runs one loop with
+ * DriveSubsystem and NoteIntakeSubsystem reading the logged gyro, module encoder and limit
+ * switch values through the replay IO seams.  Nothing waits on the wall clock, so a match
+ * replays in a few seconds and the same log always gives the same result.
+ *
+ * <p>Odometry runs once per loop instead of on the 200 Hz thread, so the replayed pose can
+ * drift slightly from the logged one; the command timeline is what normally gets diffed.
+ * AprilTag measurements are logged (Vision/Measurement) but not fused during replay.
+ *
+ * <p>Outputs, next to the log unless an output folder is given:
+ * <pre>
+ *   &lt;log&gt;_pose.csv             time_s, replay x/y/rot, logged x/y/rot
+ *   &lt;log&gt;_commands_logged.csv  time_s, event, command - from the log's Command/ signals
+ *   &lt;log&gt;_commands_replay.csv  time_s, event, command - from the replayed scheduler
+ * </pre>
+ *
+ * <p>Run with {@code ./gradlew replay -Plog=path/to/telemetry_x.bin}.
+ */
+public final class ReplayMain {
+
+    private static final String kCOMMAND_PREFIX = "Command/";
+
+    private final TelemetryLogReader m_log;
+    private final ReplaySource m_source;
+    private final int m_driverStationSignal;
+    private final int[] m_joystickSignals = new int[Robot.kLOGGED_JOYSTICKS.length];
+    private final int m_poseSignal;
+
+    private DriveSubsystem m_drive;
+
+    private ReplayMain(TelemetryLogReader log) {
+        m_log = log;
+        m_source = new ReplaySource(log);
+        m_driverStationSignal = m_source.requireSignal("DriverStation/State");
+        for (int ix = 0; ix < m_joystickSignals.length; ix++) {
+            m_joystickSignals[ix] = m_source.requireSignal("DriverStation/Joystick" + Robot.kLOGGED_JOYSTICKS[ix]);
+        }
+        m_poseSignal = m_source.requireSignal("Chassis/Pose");
+    }
+
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: ReplayMain <telemetry log> [output folder]");
+            System.exit(1);
+        }
+        File logFile = new File(args[0]);
+        File outFolder = args.length > 1 ? new File(args[1]) : logFile.getAbsoluteFile().getParentFile();
+        String baseName = logFile.getName().replaceFirst("\\.bin$", "");
+
+        TelemetryLogReader log = TelemetryLogReader.read(logFile);
+        System.out.println("Replay - " + log.getFrames().size() + " frames from " + logFile);
+
+        RobotLoop.initSimulation();
+
+        outFolder.mkdirs();
+        ReplayMain replay = new ReplayMain(log);
+        replay.writeLoggedCommands(new File(outFolder, baseName + "_commands_logged.csv"));
+        try (PrintWriter poseOut = new PrintWriter(new File(outFolder, baseName + "_pose.csv"));
+                PrintWriter commandOut = new PrintWriter(new File(outFolder, baseName + "_commands_replay.csv"))) {
+            replay.run(poseOut, commandOut);
+        }
+        System.exit(0);
+    }
+
+    private void run(PrintWriter poseOut, PrintWriter commandOut) {
+        List<Frame> frames = m_log.getFrames();
+        int first = 0;
+        while (first < frames.size() && frames.get(first).values[m_driverStationSignal] == null) {
+            first++;
+        }
+        if (first == frames.size()) {
+            System.out.println("Replay - no robot loops in the log");
+            return;
+        }
+
+        // subsystems construct (and read their inputs) against the first loop's values
+        setFrame(frames.get(first));
+        RobotLoop robotLoop = new RobotLoop(new Robot(() -> {
+            m_drive = new DriveSubsystem(new GyroIOReplay(m_source),
+                    new ModuleIOReplay(m_source, 0), new ModuleIOReplay(m_source, 1),
+                    new ModuleIOReplay(m_source, 2), new ModuleIOReplay(m_source, 3),
+                    null, false);
+            // the shooter has no logged inputs - outputs only
+            return new RobotContainer(m_drive, new NoteIntakeSubsystem(new IntakeIOReplay(m_source)),
+                    new NoteShooterSubsystem(new ShooterIO() {}));
+        }));
+        RobotLoop.writeCommandTimeline(commandOut);
+
+        poseOut.println("time_s,replay_x,replay_y,replay_rot,logged_x,logged_y,logged_rot");
+        double maxError = 0.0;
+        int loops = 0;
+        for (int ix = first; ix < frames.size(); ix++) {
+            Frame frame = frames.get(ix);
+            if (frame.values[m_driverStationSignal] == null) {
+                continue;
+            }
+            setFrame(frame);
+            robotLoop.runLoop();
+            loops++;
+
+            Pose2d pose = m_drive.getPose();
+            double[] logged = frame.values[m_poseSignal];
+            if (logged != null) {
+                poseOut.printf(Locale.ROOT, "%.6f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n", frame.timestampMicros * 1e-6,
+                        pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+                        logged[0], logged[1], logged[2]);
+                maxError = Math.max(maxError, Math.hypot(pose.getX() - logged[0], pose.getY() - logged[1]));
+            }
+        }
+        System.out.printf(Locale.ROOT, "Replay - %d loops, max pose difference %.3f m%n", loops, maxError);
+    }
+
+    /* Steps the sim clock to the frame and applies its driver station inputs */
+    private void setFrame(Frame frame) {
+        long now = RobotController.getFPGATime();
+        if (frame.timestampMicros > now) {
+            SimHooks.stepTiming((frame.timestampMicros - now) * 1e-6);
+        }
+        m_source.setFrame(frame);
+
+        double[] state = frame.values[m_driverStationSignal];
+        DriverStationSim.setEnabled(state[0] != 0.0);
+        DriverStationSim.setAutonomous(state[1] != 0.0);
+        DriverStationSim.setTest(state[2] != 0.0);
+        DriverStationSim.setAllianceStationId(AllianceStationID.values()[(int) state[3]]);
+
+        for (int ix = 0; ix < m_joystickSignals.length; ix++) {
+            double[] stick = frame.values[m_joystickSignals[ix]];
+            if (stick == null) {
+                continue;
+            }
+            int port = Robot.kLOGGED_JOYSTICKS[ix];
+            int axisCount = (int) stick[0];
+            int povCount = (int) stick[3];
+            DriverStationSim.setJoystickAxisCount(port, axisCount);
+            DriverStationSim.setJoystickButtonCount(port, (int) stick[1]);
+            DriverStationSim.setJoystickButtons(port, (int) stick[2]);
+            DriverStationSim.setJoystickPOVCount(port, povCount);
+            for (int axis = 0; axis < axisCount; axis++) {
+                DriverStationSim.setJoystickAxis(port, axis, stick[4 + axis]);
+            }
+            for (int pov = 0; pov < povCount; pov++) {
+                DriverStationSim.setJoystickPOV(port, pov, (int) stick[4 + Robot.kLOGGED_AXES + pov]);
+            }
+        }
+        DriverStationSim.notifyNewData();
+    }
+
+    /* The original run's command timeline, same format as the replay's */
+    private void writeLoggedCommands(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("time_s,event,command");
+            for (Frame frame : m_log.getFrames()) {
+                for (int id = 0; id < frame.values.length; id++) {
+                    String name = m_log.getSignalName(id);
+                    if (frame.values[id] == null || !name.startsWith(kCOMMAND_PREFIX)) {
+                        continue;
+                    }
+                    out.printf(Locale.ROOT, "%.6f,%s,%s%n", frame.timestampMicros * 1e-6,
+                            frame.values[id][0] != 0.0 ? "start" : "end", name.substring(kCOMMAND_PREFIX.length()));
+                }
+            }
+        }
+    }
+}
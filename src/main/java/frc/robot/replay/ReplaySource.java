@@ -0,0 +1,43 @@
+package frc.robot.replay;
+
+import frc.utils.TelemetryLogReader;
+import frc.utils.TelemetryLogReader.Frame;
+
+/**
+ * The logged frame being replayed.  Replay IO implementations read their inputs from here.
+ */
+public final class ReplaySource {
+
+    private final TelemetryLogReader m_log;
+    private Frame m_frame;
+
+    public ReplaySource(TelemetryLogReader log) {
+        m_log = log;
+    }
+
+    public void setFrame(Frame frame) {
+        m_frame = frame;
+    }
+
+    public Frame getFrame() {
+        return m_frame;
+    }
+
+    /**
+     * @return the signal id - fails when the log does not have the signal, replay cannot run without it.
+     */
+    public int requireSignal(String name) {
+        int id = m_log.getSignalId(name);
+        if (id < 0) {
+            throw new IllegalArgumentException("telemetry log has no " + name + " signal");
+        }
+        return id;
+    }
+
+    /**
+     * @return the signal's values in the current frame, or null if it was not recorded that loop.
+     */
+    public double[] get(int id) {
+        return m_frame == null ? null : m_frame.values[id];
+    }
+}
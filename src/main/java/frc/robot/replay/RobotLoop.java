@@ -0,0 +1,106 @@
+package frc.robot.replay;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+import frc.robot.Robot;
+
+/**
+ * Runs Robot one loop at a time on the simulated HAL, the way IterativeRobotBase does
+ * (mode transitions, mode periodic, robotPeriodic), so offline tools control the clock
+ * and inputs between loops instead of TimedRobot's notifier.
+ */
+public final class RobotLoop {
+
+    private enum Mode { NONE, DISABLED, AUTONOMOUS, TELEOP, TEST }
+
+    private final Robot m_robot;
+    private Mode m_mode = Mode.NONE;
+
+    /**
+     * Initializes the simulated HAL with the clock paused and a driver station attached.
+     * Call before constructing Robot.
+     */
+    public static void initSimulation() {
+        if (!HAL.initialize(500, 0)) {
+            throw new IllegalStateException("HAL initialize failed");
+        }
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Runs robotInit.
+     */
+    public RobotLoop(Robot robot) {
+        m_robot = robot;
+        m_robot.robotInit();
+    }
+
+    /**
+     * Writes the command timeline (time_s, event, command) from the scheduler's callbacks.
+     */
+    public static void writeCommandTimeline(PrintWriter out) {
+        out.println("time_s,event,command");
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.onCommandInitialize(command -> writeCommand(out, "start", command));
+        scheduler.onCommandFinish(command -> writeCommand(out, "end", command));
+        scheduler.onCommandInterrupt(command -> writeCommand(out, "end", command));
+    }
+
+    private static void writeCommand(PrintWriter out, String event, Command command) {
+        out.printf(Locale.ROOT, "%.6f,%s,%s%n", RobotController.getFPGATime() * 1e-6, event, command.getName());
+    }
+
+    /**
+     * Runs one robot loop with the driver station state already set through DriverStationSim.
+     */
+    public void runLoop() {
+        Mode mode;
+        if (DriverStation.isDisabled()) {
+            mode = Mode.DISABLED;
+        } else if (DriverStation.isAutonomous()) {
+            mode = Mode.AUTONOMOUS;
+        } else if (DriverStation.isTest()) {
+            mode = Mode.TEST;
+        } else {
+            mode = Mode.TELEOP;
+        }
+
+        if (mode != m_mode) {
+            switch (m_mode) {
+                case DISABLED -> m_robot.disabledExit();
+                case AUTONOMOUS -> m_robot.autonomousExit();
+                case TELEOP -> m_robot.teleopExit();
+                case TEST -> m_robot.testExit();
+                default -> {}
+            }
+            switch (mode) {
+                case DISABLED -> m_robot.disabledInit();
+                case AUTONOMOUS -> m_robot.autonomousInit();
+                case TELEOP -> m_robot.teleopInit();
+                case TEST -> m_robot.testInit();
+                default -> {}
+            }
+            m_mode = mode;
+        }
+
+        switch (mode) {
+            case DISABLED -> m_robot.disabledPeriodic();
+            case AUTONOMOUS -> m_robot.autonomousPeriodic();
+            case TELEOP -> m_robot.teleopPeriodic();
+            case TEST -> m_robot.testPeriodic();
+            default -> {}
+        }
+        m_robot.robotPeriodic();
+    }
+}
@@ -1,8 +1,15 @@
 package frc.robot.subsystems;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import edu.wpi.first.networktables.GenericEntry;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
@@ -11,7 +18,13 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.RobotContainer;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.libraries.AutoPatternSet;
 import frc.robot.libraries.ConsoleAuto;
+import frc.robot.libraries.PathCache;
+import frc.utils.DashboardPublisher;
+import frc.utils.DashboardPublisher.Signal;
+import frc.utils.LoopTiming;
 //import frc.robot.Libraries.StepState;
 
 //There is a 95% chance that it will crash if you try to run auto so dont
@@ -19,282 +32,276 @@ import frc.robot.libraries.ConsoleAuto;
 
 public class AutonomousSubsystem extends SubsystemBase{
 
-  // limited by the rotary switch settings of 6 and POV max of 8.
-  public enum AutonomousCommands {
-    WALLDRIVE,
-    SPEAKERCENTER,
-    SPEAKERLEFT,
-    SPEAKERRIGHT;
-
-    public String getSelectName() {
-        return this.toString();
-    }
-
-    public int getSelectIx() {
-        return this.ordinal();
-    }
-  }
-
-  public enum AutonomousSteps {
-    WAIT1('W', 1.0),
-    WAIT2('W', 2.0),
-    WAITLOOP('W', 99.9),
-    WALL_OUT('D', 0.0, 1),
-    SHOOTNOTE('S', 0.0, 1),
-    SpkrCntrOut1('D', 0.0, 2),
-    SpkrCntrRtrn1('D', 0.0, 3),
-    DRV_INTK_1('I', 0.5, 2),
-    DRV_STRT_1('D', 0.0, 3, 2),
-    DRV_BACK_1('D', 0.0, 4),
-    DRV_INTK_2('I', 0.0, 5),
-    DRV_STRT_2('D', 0.0, 6, 5),
-    END('E')
-    ;
-
-    private final char m_stepStruct;
-    private final double m_waitTime;
-    private final int m_iSwATrue;
-    private final int m_iSwBFalse;
-
-    private AutonomousSteps(char cStepStruct, double dWaitTime, int iSwATrue, int iSwBFalse) {
-      this.m_stepStruct = cStepStruct;
-      this.m_waitTime = dWaitTime;
-      this.m_iSwATrue = iSwATrue;
-      this.m_iSwBFalse = iSwBFalse;
-    }
-
-    private AutonomousSteps(char cStepStruct, double dWaitTime, int iSwATrue) {
-      this.m_stepStruct = cStepStruct;
-      this.m_waitTime = dWaitTime;
-      this.m_iSwATrue = iSwATrue;
-      this.m_iSwBFalse = 0;
-    }
-
-    private AutonomousSteps(char cStepStruct, double dWaitTime) {
-      this.m_stepStruct = cStepStruct;
-      this.m_waitTime = dWaitTime;
-      this.m_iSwATrue = 0;
-      this.m_iSwBFalse = 0;
-    }
-    
-    private AutonomousSteps(char cStepStruct) {
-      this.m_stepStruct = cStepStruct;
-      this.m_waitTime = 0;
-      this.m_iSwATrue = 0;
-      this.m_iSwBFalse = 0;
-    }
-
-    public char getStepStruc() {
-      return m_stepStruct;
-    }
-
-    public double getWaitTIme() {
-      return m_waitTime;
-    }
-
-    public int getASwitch() {
-      return m_iSwATrue;
-    }
-
-    public int getBSwitch() {
-      return m_iSwBFalse;
-    }
-
-  }
-
   private String kAUTO_TAB = "Autonomous";
-  private int kSTEP_MAX = 12;
+  private static final int kRELOAD_CHECK_LOOPS = 50; // check the pattern file once a second
+  private static final int kSTEP_DISPLAY = 12; // steps shown on the tab, patterns may have more
 
   ConsoleAuto m_ConsoleAuto;
   RobotContainer m_robotContainer;
 
-  AutonomousCommands m_autoSelectCommand[] = AutonomousCommands.values();
-  AutonomousCommands m_selectedCommand;
+  // patterns from deploy/auto/patterns.txt - replaced as a whole on reload
+  private final File m_patternFile = new File(Filesystem.getDeployDirectory(), AutoPatternSet.kDEPLOY_FILE);
+  private long m_patternFileModified;
+  private int m_iReloadCheckCount = 0;
+  private boolean m_isValidated = false;
+  private AutoPatternSet m_patterns = AutoPatternSet.empty();
+  private AutoPatternSet.Pattern m_selectedPattern;
 
   private String m_strCommand;
   private int m_iWaitCount;
-  private AutonomousSteps[] m_autoStep = new AutonomousSteps[kSTEP_MAX];
-  private String[] m_strStepList = new String[kSTEP_MAX];
-  private String[] m_strStepSwitch = new String[kSTEP_MAX];
-  private boolean[] m_bStepSWList = new boolean[kSTEP_MAX];
-  private int m_iCmdCount = 0;
+  private boolean[] m_bStepSWList = new boolean[AutoPatternSet.kMAX_STEPS];
+
+  // prebuilt autonomous command - rebuilt while disabled whenever a selection input changes
+  private Command m_autoCommand;
+  private boolean m_isDirty = true;
+  private boolean m_isLastAllianceKnown = false;
+  private boolean m_isLastAllianceRed = true;
+  private int m_iLastDriveAllianceChanges = 0;
 
   private ShuffleboardTab m_tab = Shuffleboard.getTab(kAUTO_TAB);
 
-  private GenericEntry m_autoCmd = m_tab.add("Selected Pattern", "")
+  // tab values are only sent when they change, and only while disabled
+  private final DashboardPublisher m_dashboard = DashboardPublisher.getInstance();
+
+  private Signal m_autoCmd = addTabSignal(m_tab.add("Selected Pattern", "")
       .withPosition(2, 0)
       .withSize(2, 1)
-      .getEntry();
+      .getEntry(), DashboardPublisher.Type.STRING);
 
-  private GenericEntry m_iWaitLoop = m_tab.add("WaitLoop", 0)
+  private Signal m_iWaitLoop = addTabSignal(m_tab.add("WaitLoop", 0)
       .withWidget(BuiltInWidgets.kDial)
       .withPosition(4, 0)
       .withSize(2, 2)
       .withProperties(Map.of("min", 0, "max", 5))
-      .getEntry();
+      .getEntry(), DashboardPublisher.Type.NUMBER);
 
-  private GenericEntry m_allianceColor = m_tab.add("Alliance", true)
+  private Signal m_allianceColor = addTabSignal(m_tab.add("Alliance", true)
       .withWidget(BuiltInWidgets.kBooleanBox)
       .withProperties(Map.of("colorWhenTrue", "Red", "colorWhenFalse", "Blue"))
       .withPosition(0, 0)
       .withSize(2, 2)
-      .getEntry();
+      .getEntry(), DashboardPublisher.Type.BOOLEAN);
 
-  private int m_iPatternSelect;
+  private Signal[] m_stepDisplay = new Signal[kSTEP_DISPLAY];
+  private Signal[] m_stepSwitchDisplay = new Signal[kSTEP_DISPLAY];
+  private Signal[] m_stepStateDisplay = new Signal[kSTEP_DISPLAY];
 
-  private AutonomousSteps[][] m_cmdSteps;
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final int m_timingChannel = m_loopTiming.register("Subsystems/AutonomousSubsystem");
+  // selection recompute plus command build, and switch flip to rebuilt command
+  private final int m_rebuildChannel = m_loopTiming.register("Auto/SelectRebuild");
+  private final int m_selectLatencyChannel = m_loopTiming.register("Auto/SelectLatency", 250.0);
 
   public AutonomousSubsystem(ConsoleAuto consoleAuto, RobotContainer robotContainer) {
 
     m_ConsoleAuto = consoleAuto;
     m_robotContainer = robotContainer;
-    m_selectedCommand = m_autoSelectCommand[0];
-    m_strCommand = m_selectedCommand.toString();
-    m_iPatternSelect = 0;
     m_iWaitCount = 0;
 
-    for (int iat = 0; iat < kSTEP_MAX; iat++) {
-      initStepList(iat);
+    for (int iat = 0; iat < kSTEP_DISPLAY; iat++) {
       fmtDisplay(iat);
+      initStepList(iat);
     }
-  
-/*
- *  CRITICAL PIECE
- * This two dimensional array defines the steps for each selectable Auto pattern
- * First dimension is set by the ConsoleAuto selector switch (passed in via POV 0)
- * Second dimension is the sequence of the possible step(s) for the pattern
- */
-    m_cmdSteps = new AutonomousSteps[][] {
-      //WALLDRIVE
-          {AutonomousSteps.WAITLOOP,
-           AutonomousSteps.WALL_OUT},
-      //SPEAKERCENTER
-          {AutonomousSteps.WAITLOOP, 
-            AutonomousSteps.SHOOTNOTE, 
-            AutonomousSteps.SpkrCntrOut1, 
-            AutonomousSteps.WAIT1,
-            AutonomousSteps.SpkrCntrRtrn1
-          },
-      //SPEAKERLEFT
-          {AutonomousSteps.WAITLOOP,
-            AutonomousSteps.SHOOTNOTE
-          },
-      //SPEAKERRIGHT
-          {AutonomousSteps.WAITLOOP,
-            AutonomousSteps.SHOOTNOTE
-          }
-    };
-
-    if (m_autoStep.length < m_cmdSteps.length ) {
-      System.out.println("WARNING - Auto Commands LT Command Steps");
+
+    m_patternFileModified = m_patternFile.lastModified();
+    AutoPatternSet patterns = readPatterns();
+    if (patterns != null) {
+      m_patterns = patterns;
     }
-    // more? like more commands than supported by the switch
+    m_selectedPattern = m_patterns.getPatternCount() > 0 ? m_patterns.getPattern(0) : null;
+    m_strCommand = m_selectedPattern != null ? m_selectedPattern.getName() : "NO PATTERNS";
+  }
 
+  private Signal addTabSignal(GenericEntry entry, DashboardPublisher.Type type) {
+    return m_dashboard.add(entry, type, 0.0).onlyWhile(DriverStation::isDisabled);
   }
 
   private void fmtDisplay(int ix) {
   
     String labelName = "Step " + ix;
   
-    m_tab
-      .addString(labelName, () -> m_strStepList[ix])
+    m_stepDisplay[ix] = addTabSignal(m_tab
+      .add(labelName, "")
       .withWidget(BuiltInWidgets.kTextView)
       .withSize(2,1)
-      .withPosition(ix * 2, 3);
+      .withPosition(ix * 2, 3)
+      .getEntry(), DashboardPublisher.Type.STRING);
 
     labelName = "Switch(es) " + ix;
-    m_tab
-      .addString(labelName, () -> m_strStepSwitch[ix])
+    m_stepSwitchDisplay[ix] = addTabSignal(m_tab
+      .add(labelName, "")
       .withPosition(ix *2, 4)
       .withSize(2, 1)
-      .withWidget(BuiltInWidgets.kTextView);
+      .withWidget(BuiltInWidgets.kTextView)
+      .getEntry(), DashboardPublisher.Type.STRING);
 
     labelName = "SwState " + ix;
-    m_tab
-      .addBoolean(labelName, () -> m_bStepSWList[ix])
+    m_stepStateDisplay[ix] = addTabSignal(m_tab
+      .add(labelName, false)
       .withPosition(ix *2, 5)
       .withSize(2, 1)
-      .withWidget(BuiltInWidgets.kBooleanBox);
+      .withWidget(BuiltInWidgets.kBooleanBox)
+      .getEntry(), DashboardPublisher.Type.BOOLEAN);
 
   }
 
   private void initStepList(int ix) {
-      m_strStepList[ix] = "";
-      m_strStepSwitch[ix] = "";
+      m_stepDisplay[ix].set("");
+      m_stepSwitchDisplay[ix].set("");
+      m_stepStateDisplay[ix].set(false);
       m_bStepSWList[ix] = false;
   }
 
     @Override
     public void periodic() {
     // This method will be called once per scheduler run
+      long startTime = System.nanoTime();
+      m_loopTiming.recordSince(m_timingChannel, startTime);
     }
    
 
+  /*
+   * Runs every loop while disabled, but only recomputes the selection, the
+   * tab and the prebuilt command when a debounced console switch, the
+   * alliance or the pattern file changed
+   */
   public void selectAutoCommand() {
 
+    checkPatternFile();
+
+    boolean isConsoleChanged = m_ConsoleAuto.pollChanges();
+
+    // the built command depends on whether the alliance is known (start pose reset)
+    // and on its colour (flipped paths) - a change of either, here or in the drive, rebuilds
+    Optional<DriverStation.Alliance> alliance = DriverStation.isDSAttached()
+        ? DriverStation.getAlliance() : Optional.empty();
+    boolean isAllianceKnown = alliance.isPresent();
+    boolean isAllianceRed = alliance.map(color -> color == DriverStation.Alliance.Red).orElse(true);
+    int driveAllianceChanges = m_robotContainer.getAllianceChangeCount();
+    if (isAllianceKnown != m_isLastAllianceKnown
+        || isAllianceRed != m_isLastAllianceRed
+        || driveAllianceChanges != m_iLastDriveAllianceChanges) {
+      m_isLastAllianceKnown = isAllianceKnown;
+      m_isLastAllianceRed = isAllianceRed;
+      m_iLastDriveAllianceChanges = driveAllianceChanges;
+      m_isDirty = true;
+    }
+    if (!isConsoleChanged && !m_isDirty) {
+      return;
+    }
+    long startTime = System.nanoTime();
+    m_allianceColor.set(isAllianceRed);
+
     int autoSelectIx = m_ConsoleAuto.getROT_SW_0();
-    m_iPatternSelect = autoSelectIx;
-    if (autoSelectIx >= m_cmdSteps.length) {
+    if (autoSelectIx >= m_patterns.getPatternCount()) {
       autoSelectIx = 0;
-      m_iPatternSelect = 0;
-    }
-    if (DriverStation.isDSAttached()) {
-      //System.out.println(DriverStation.getAlliance().toString());
-      boolean isAllianceRed = (DriverStation.getAlliance().get() == DriverStation.Alliance.Red);
-      m_allianceColor.setBoolean(isAllianceRed);
-    } else {
-      m_allianceColor.setBoolean(true);
     }
 
-    m_selectedCommand = m_autoSelectCommand[autoSelectIx];
-    m_strCommand = m_selectedCommand.toString();
-    m_autoCmd.setString(m_strCommand);
+    m_selectedPattern = m_patterns.getPatternCount() > 0 ? m_patterns.getPattern(autoSelectIx) : null;
+    m_strCommand = m_selectedPattern != null ? m_selectedPattern.getName() : "NO PATTERNS";
+    m_autoCmd.set(m_strCommand);
 
     m_iWaitCount = m_ConsoleAuto.getROT_SW_1();
-    m_iWaitLoop.setValue(m_iWaitCount);
-
-    m_iCmdCount = 0;
-    for (int ix = 0; ix < m_cmdSteps[autoSelectIx].length; ix++) {
-      m_autoStep[ix] = m_cmdSteps[autoSelectIx][ix];
-      m_strStepList[ix] = m_autoStep[ix].name();
-      m_strStepSwitch[ix] = getStepSwitch(m_autoStep[ix]);
-      m_bStepSWList[ix] = getStepBoolean(m_autoStep[ix]);
-      if (m_bStepSWList[ix]) {
-        m_iCmdCount++;
+    m_iWaitLoop.set(m_iWaitCount);
+
+    int stepCount = m_selectedPattern != null ? m_selectedPattern.getStepCount() : 0;
+    for (int ix = 0; ix < stepCount; ix++) {
+      AutoPatternSet.Step step = m_selectedPattern.getStep(ix);
+      m_bStepSWList[ix] = getStepBoolean(step);
+      if (ix < kSTEP_DISPLAY) {
+        m_stepDisplay[ix].set(step.getName());
+        m_stepSwitchDisplay[ix].set(step.getSwitchText());
+        m_stepStateDisplay[ix].set(m_bStepSWList[ix]);
       }
     }
-    for (int ix = m_cmdSteps[autoSelectIx].length; ix < kSTEP_MAX; ix++) {
+    for (int ix = stepCount; ix < kSTEP_DISPLAY; ix++) {
       initStepList(ix);
     }
 
-  }
-
-  private String getStepSwitch(AutonomousSteps stepName) {
-    String stepSwName = "";
-    int stepSwitch = stepName.getASwitch();
-    if (stepSwitch > 0) {
-      stepSwName = String.valueOf(stepSwitch);
+    if (!m_robotContainer.getPathCache().isLoaded()) {
+      // the path steps need the paths - stay dirty and build once they are loaded
+      m_isDirty = true;
+      return;
     }
-    stepSwitch = stepName.getBSwitch();
-    if (stepSwitch > 0) {
-      stepSwName = stepSwName + " & !" + String.valueOf(stepSwitch);
+    buildAutoCommand();
+
+    m_loopTiming.recordSince(m_rebuildChannel, startTime);
+    if (isConsoleChanged) {
+      // switch flip to command ready, debounce time included
+      m_loopTiming.record(m_selectLatencyChannel,
+          (RobotController.getFPGATime() - m_ConsoleAuto.getChangeTimeMicros()) * 1e-3);
     }
-    return stepSwName;
+
   }
-    
-  private boolean getStepBoolean(AutonomousSteps stepName) {
+
+  private boolean getStepBoolean(AutoPatternSet.Step step) {
     boolean stepBool = true;
-    int stepSwitch = stepName.getASwitch();
-    if (stepSwitch > 0) {
-      stepBool = m_ConsoleAuto.getButton(stepSwitch);
+    for (int ix = 0; ix < step.getSwitchOnCount(); ix++) {
+      stepBool = stepBool & m_ConsoleAuto.getButton(step.getSwitchOn(ix));
     }
-    stepSwitch = stepName.getBSwitch();
-    if (stepSwitch > 0) {
-      stepBool = stepBool & !m_ConsoleAuto.getButton(stepSwitch);
+    for (int ix = 0; ix < step.getSwitchOffCount(); ix++) {
+      stepBool = stepBool & !m_ConsoleAuto.getButton(step.getSwitchOff(ix));
     }
     return stepBool;
   }
 
+  /*
+   * Hot reload of the pattern file while disabled.  The file's modification
+   * time is checked once a second; a changed file is parsed and checked
+   * against the loaded paths before it replaces the patterns in use, so a
+   * bad edit leaves the last good patterns selected.
+   */
+  private void checkPatternFile() {
+    PathCache pathCache = m_robotContainer.getPathCache();
+    if (!m_isValidated && pathCache.isLoaded()) {
+      // startup patterns - the paths were still loading when they were read
+      reportProblems(m_patterns.validate(pathCache.getPathNames()));
+      m_isValidated = true;
+    }
+
+    if (++m_iReloadCheckCount < kRELOAD_CHECK_LOOPS) {
+      return;
+    }
+    m_iReloadCheckCount = 0;
+    long modified = m_patternFile.lastModified();
+    if (modified == m_patternFileModified) {
+      return;
+    }
+    m_patternFileModified = modified;
+
+    AutoPatternSet patterns = readPatterns();
+    if (patterns == null) {
+      return;
+    }
+    if (pathCache.isLoaded()) {
+      List<String> problems = patterns.validate(pathCache.getPathNames());
+      if (!problems.isEmpty()) {
+        reportProblems(problems);
+        DriverStation.reportWarning("Auto patterns - " + AutoPatternSet.kDEPLOY_FILE + " not reloaded", false);
+        return;
+      }
+    }
+    m_patterns = patterns;
+    m_isValidated = pathCache.isLoaded();
+    m_isDirty = true;
+    System.out.println("Auto patterns - reloaded " + patterns.getPatternCount() + " patterns");
+  }
+
+  /* Returns null when the file cannot be read or parsed */
+  private AutoPatternSet readPatterns() {
+    try {
+      return AutoPatternSet.load(m_patternFile);
+    } catch (IOException | IllegalArgumentException e) {
+      DriverStation.reportError("Auto patterns - " + e.getMessage(), false);
+      return null;
+    }
+  }
+
+  private void reportProblems(List<String> problems) {
+    for (String problem : problems) {
+      DriverStation.reportWarning("Auto patterns - " + problem, false);
+    }
+  }
 
   /*
    * Command to run the Auto selection process with Operator Console interaction
@@ -307,47 +314,91 @@ public class AutonomousSubsystem extends SubsystemBase{
 
   /*
    * Command to process the selected command list
+   * Returns the command prebuilt during disabled - only builds here if the
+   * selection was never run or changed since the last build
   */
   public Command cmdAutoControl() {
 
-    Command autoCmdList[] = new Command[m_iCmdCount];
+    if (m_isDirty || m_autoCommand == null) {
+      buildAutoCommand();
+    }
+    return m_autoCommand;
+  }
 
-    int cmdIx = 0;
-    for (int ix = 0; ix < m_cmdSteps[m_iPatternSelect].length; ix++) {
-      if (m_bStepSWList[ix]) {
-        autoCmdList[cmdIx] = getAutoCmd(m_autoStep[ix]);
-        cmdIx++;
+  /*
+   * Compiles the selected pattern into a ready to schedule command
+   * Runs while disabled each time a selection input changes
+   */
+  private void buildAutoCommand() {
+
+    m_robotContainer.startPathSequence();
+
+    List<Command> autoCmdList = new ArrayList<>();
+
+    int groupCount = m_selectedPattern != null ? m_selectedPattern.getGroupCount() : 0;
+    for (int group = 0; group < groupCount; group++) {
+      Command groupCmd = getGroupCmd(group);
+      if (groupCmd != null) {
+        autoCmdList.add(groupCmd);
       }
     }
 
-    SequentialCommandGroup autoCmd = new SequentialCommandGroup(autoCmdList);
-    return autoCmd;
+    m_autoCommand = new SequentialCommandGroup(autoCmdList.toArray(new Command[0]));
+    // built before the paths loaded - its path steps are missing, build again
+    m_isDirty = !m_robotContainer.getPathCache().isLoaded();
    
   }
-  private Command getAutoCmd(AutonomousSteps autoStep) {
 
-    Command workCmd = Commands.print("command not found for " + autoStep.name());
-    switch (autoStep.getStepStruc()) {
-      case 'W':
-        double waitTime = autoStep.getWaitTIme();
-        workCmd = getWaitCommand(waitTime == 99.9 ? m_ConsoleAuto.getROT_SW_1() : waitTime);
+  /*
+   * Builds one group of the selected pattern from its switched on steps
+   * Returns null when nothing in the group runs - a deadline group whose
+   * deadline step is switched off is skipped as a whole
+   */
+  private Command getGroupCmd(int group) {
+    int start = m_selectedPattern.getGroupStart(group);
+    int end = m_selectedPattern.getGroupEnd(group);
+    char groupType = m_selectedPattern.getGroupType(group);
+    if (groupType == AutoPatternSet.kGROUP_DEADLINE && !m_bStepSWList[start]) {
+      return null;
+    }
+
+    List<Command> stepCmds = new ArrayList<>();
+    for (int ix = start; ix < end; ix++) {
+      if (m_bStepSWList[ix]) {
+        stepCmds.add(getAutoCmd(m_selectedPattern.getStep(ix)));
+      }
+    }
+    if (stepCmds.isEmpty()) {
+      return null;
+    }
+    if (stepCmds.size() == 1) {
+      return stepCmds.get(0);
+    }
+    Command[] others = stepCmds.subList(1, stepCmds.size()).toArray(new Command[0]);
+    if (groupType == AutoPatternSet.kGROUP_DEADLINE) {
+      return Commands.deadline(stepCmds.get(0), others);
+    }
+    return Commands.parallel(stepCmds.toArray(new Command[0]));
+  }
+
+  private Command getAutoCmd(AutoPatternSet.Step autoStep) {
+
+    Command workCmd = Commands.print("command not found for " + autoStep.getName());
+    switch (autoStep.getType()) {
+      case AutoPatternSet.kWAIT:
+        workCmd = getWaitCommand(autoStep.isWaitFromSwitch() ? m_ConsoleAuto.getROT_SW_1() : autoStep.getWaitTime());
+        break;
+      case AutoPatternSet.kDRIVE:
+        workCmd =  m_robotContainer.getDrivePathCommand(autoStep.getName());
         break;
-      case 'D':
-        workCmd =  m_robotContainer.getDrivePathCommand(autoStep.toString());
+      case AutoPatternSet.kINTAKE:
+        workCmd =  m_robotContainer.getIntakePathCommand(autoStep.getName(), autoStep.getWaitTime());
         break;
-      case 'I':
-        workCmd =  m_robotContainer.getIntakePathCommand(autoStep.toString(), autoStep.getWaitTIme());
+      case AutoPatternSet.kSHOOT:
+        workCmd = m_robotContainer.cmdShootNote().withTimeout(AutoConstants.kShootNoteTimeout);
         break;
-      case 'S':
-        //workCmd = getWaitCommand(2);
-        switch (autoStep) {
-          case SHOOTNOTE:
-            workCmd = m_robotContainer.cmdShootNote().withTimeout(2);
-            break;
-        
-          default:
-            break;
-        }
+      case AutoPatternSet.kPRESPIN:
+        workCmd = m_robotContainer.cmdPreSpinShooter();
         break;
       default:
         break;
@@ -10,7 +10,6 @@ import java.util.Optional;
 import org.photonvision.PhotonCamera;
 
 import com.fasterxml.jackson.core.sym.Name;
-import com.kauailabs.navx.frc.AHRS;
 import com.pathplanner.lib.util.ReplanningConfig;
 import com.pathplanner.lib.util.PIDConstants;
 import com.pathplanner.lib.util.PathPlannerLogging;
@@ -20,10 +19,11 @@ import com.pathplanner.lib.commands.PathPlannerAuto;
 import com.pathplanner.lib.path.PathPlannerPath;
 
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
-import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
@@ -32,57 +32,176 @@ import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.ModuleConstants;
+import frc.robot.libraries.AprilTagVision;
+import frc.robot.libraries.PathCache;
+import frc.robot.libraries.SampledTrajectory;
+import frc.robot.libraries.TrajectoryCache;
+import frc.robot.subsystems.GyroIO.GyroIOInputs;
+import frc.robot.subsystems.ModuleIO.ModuleIOInputs;
+import frc.utils.DashboardPublisher;
+import frc.utils.LoopTiming;
+import frc.utils.TelemetryLog;
+import frc.utils.SwerveSetpointGenerator;
 import frc.utils.SwerveUtils;
 
 public class DriveSubsystem extends SubsystemBase {
 
-    // Create MAXSwerveModules
-    private final MAXSwerveModule m_frontLeft = new MAXSwerveModule(
-            DriveConstants.kFrontLeftDrivingCanId,
-            DriveConstants.kFrontLeftTurningCanId,
-            DriveConstants.kFrontLeftChassisAngularOffset);
+    private static final int kMODULE_COUNT = 4;
+
+    // MAXSwerveModules - front left, front right, rear left, rear right
+    private final MAXSwerveModule[] m_modules;
+
+    // Preallocated buffers for the control loop - the 20 ms path reuses these and reads
+    // the modules as primitives, so it does not allocate.  The Rotation2d objects the
+    // pose estimator API needs (heading, odometry module angles) are still created,
+    // one per angle that changed.
+    private final double[] m_desiredSpeeds = new double[kMODULE_COUNT];
+    private final double[] m_desiredAngles = new double[kMODULE_COUNT];
+    private final double[] m_discretizedSpeeds = new double[2];
+    private final ChassisSpeeds m_robotRelativeSpeeds = new ChassisSpeeds();
+
+    // X formation for setX
+    private static final double[] kX_SPEEDS = {0.0, 0.0, 0.0, 0.0};
+    private static final double[] kX_ANGLES = {Math.PI / 4, -Math.PI / 4, -Math.PI / 4, Math.PI / 4};
+
+    // The gyro sensor - m_gyroInputs is the main loop snapshot, m_odometryGyroInputs
+    // belongs to the odometry thread (under m_odometryLock)
+    private final GyroIO m_gyroIO;
+    private final GyroIOInputs m_gyroInputs = new GyroIOInputs();
+    private final GyroIOInputs m_odometryGyroInputs = new GyroIOInputs();
+    private Rotation2d m_heading = new Rotation2d();
+    private double m_lastGyroAngle = 0.0;
+
+    // Alliance is only read while disabled - DriverStation.getAlliance() allocates an Optional
+    // Read by the path follower's mirror supplier on the main thread only
+    private boolean m_isRedAlliance = false;
+    private boolean m_isAllianceKnown = false;
+    // bumped whenever the alliance becomes known/unknown or changes colour - the path
+    // steps built before the change have the wrong start pose reset or paths
+    private int m_allianceChangeCount = 0;
+
+    // Module aware rate limiting - steering velocity and drive acceleration per module
+    private final SwerveSetpointGenerator m_setpointGenerator = new SwerveSetpointGenerator(
+            DriveConstants.kModuleXMeters,
+            DriveConstants.kModuleYMeters,
+            DriveConstants.kMaxSpeedMetersPerSecond,
+            ModuleConstants.kTurningMaxVelocity,
+            ModuleConstants.kDrivingMaxAcceleration);
+    // false once anything else commanded the modules - the generator restarts from the measured state
+    private boolean m_isSetpointGenerated = false;
+    private final double[] m_measuredSpeeds = new double[kMODULE_COUNT];
+    private final double[] m_measuredAngles = new double[kMODULE_COUNT];
 
-    private final MAXSwerveModule m_frontRight = new MAXSwerveModule(
-            DriveConstants.kFrontRightDrivingCanId,
-            DriveConstants.kFrontRightTurningCanId,
-            DriveConstants.kFrontRightChassisAngularOffset);
-
-    private final MAXSwerveModule m_rearLeft = new MAXSwerveModule(
-            DriveConstants.kRearLeftDrivingCanId,
-            DriveConstants.kRearLeftTurningCanId,
-            DriveConstants.kBackLeftChassisAngularOffset);
+    // Pose estimation class for tracking robot pose
+    // Updated by the odometry thread - every access goes through m_odometryLock
+    SwerveDrivePoseEstimator m_poseEstimator;
 
-    private final MAXSwerveModule m_rearRight = new MAXSwerveModule(
-            DriveConstants.kRearRightDrivingCanId,
-            DriveConstants.kRearRightTurningCanId,
-            DriveConstants.kBackRightChassisAngularOffset);
+    // Odometry thread - samples the gyro and module positions faster than the scheduler loop
+    // null when odometry runs in periodic (replay)
+    private final Object m_odometryLock = new Object();
+    private final SwerveModulePosition[] m_odometryPositions = new SwerveModulePosition[kMODULE_COUNT];
+    private final Notifier m_odometryNotifier;
+    // latest estimate, published by the odometry thread for lock free reads
+    private volatile Pose2d m_latestPose = new Pose2d();
 
-    // The gyro sensor
-    private final AHRS m_gyro = new AHRS(SPI.Port.kMXP);;
+    // AprilTag pose estimates, fused in periodic - null when there is no vision (sim, replay)
+    private final AprilTagVision m_vision;
 
-    // Slew rate filter variables for controlling lateral acceleration
-    private double m_currentRotation = 0.0;
-    private double m_currentTranslationDir = 0.0;
-    private double m_currentTranslationMag = 0.0;
+    private boolean m_isFirstPath = true;
+    // rotation the next path step starts from - null before the first step of a sequence
+    private Rotation2d m_sequenceRotation = null;
+
+    // trajectory follower state - only one follower runs at a time (requires this subsystem)
+    private final double[] m_trajectorySample = new double[SampledTrajectory.kSTRIDE];
+    private double m_trajectoryStartTime = 0.0;
+    // tracking error of the running path - summarized when it ends
+    private double m_pathErrorSquaredSum = 0.0;
+    private double m_pathRotationSquaredSum = 0.0;
+    private double m_pathErrorMax = 0.0;
+    private int m_pathErrorSamples = 0;
+
+    private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+    private final int m_timingChannel = m_loopTiming.register("Subsystems/DriveSubsystem");
+
+    // Telemetry log signals and their preallocated sample buffers
+    private final TelemetryLog m_log = TelemetryLog.getInstance();
+    private final int m_targetStatesSignal = m_log.registerSignal("Chassis/TargetStates", 8);
+    private final int m_modulePositionsSignal = m_log.registerSignal("Chassis/ModulePositions", 8);
+    private final int m_headingSignal = m_log.registerSignal("Chassis/Heading", 1);
+    private final int m_poseSignal = m_log.registerSignal("Chassis/Pose", 3);
+    private final int m_targetPoseSignal = m_log.registerSignal("Chassis/TargetPose", 3);
+    // raw hardware inputs, what replay feeds back through the IO seams
+    private final int m_moduleInputsSignal = m_log.registerSignal("Drive/ModuleInputs", kMODULE_COUNT * 3);
+    private final int m_gyroInputsSignal = m_log.registerSignal("Drive/GyroInputs", 1);
+    // applied vision measurements - x, y, rot, capture time, tag count, average tag distance
+    private final int m_visionSignal = m_log.registerSignal("Vision/Measurement", 6);
+    // path following - x, y, rotation error each loop; rms and max translation error, rms rotation error per path
+    private final int m_pathErrorSignal = m_log.registerSignal("Path/TrackingError", 3);
+    private final int m_pathSummarySignal = m_log.registerSignal("Path/TrackingSummary", 3);
+    private final double[] m_pathErrorSample = new double[3];
+    private final DashboardPublisher.Signal m_pathRmsDisplay =
+            DashboardPublisher.getInstance().add("Path RMS Error", DashboardPublisher.Type.NUMBER, 0.0);
+    private final double[] m_visionSample = new double[6];
+    private final double[] m_moduleSample = new double[8];
+    private final double[] m_moduleInputsSample = new double[kMODULE_COUNT * 3];
+    private final double[] m_poseSample = new double[3];
+
+    // All deployed PathPlanner paths - parsed in the background while disabled
+    private final PathCache m_pathCache = new PathCache();
+    // Trajectories for the path steps, generated when the auto is built
+    private final TrajectoryCache m_trajectoryCache =
+            new TrajectoryCache(m_pathCache, AutoConstants.kTrajectorySamplePeriod);
+
+    /** Creates a new DriveSubsystem on the robot hardware. */
+    public DriveSubsystem() {
+        this(new GyroIONavX(),
+                new ModuleIOSparkMax(DriveConstants.kFrontLeftDrivingCanId, DriveConstants.kFrontLeftTurningCanId),
+                new ModuleIOSparkMax(DriveConstants.kFrontRightDrivingCanId, DriveConstants.kFrontRightTurningCanId),
+                new ModuleIOSparkMax(DriveConstants.kRearLeftDrivingCanId, DriveConstants.kRearLeftTurningCanId),
+                new ModuleIOSparkMax(DriveConstants.kRearRightDrivingCanId, DriveConstants.kRearRightTurningCanId),
+                new AprilTagVision(),
+                true);
+    }
 
-    private SlewRateLimiter m_magLimiter = new SlewRateLimiter(DriveConstants.kMagnitudeSlewRate);
-    private SlewRateLimiter m_rotLimiter = new SlewRateLimiter(DriveConstants.kRotationalSlewRate);
-    private double m_prevTime = WPIUtilJNI.now() * 1e-6;
+    /**
+     * Creates a new DriveSubsystem on the given hardware seams.
+     *
+     * @param vision            AprilTag pose source, null for none.
+     * @param useOdometryThread Run odometry on the high frequency thread, otherwise
+     *                          once per loop in periodic (deterministic, used by replay).
+     */
+    public DriveSubsystem(GyroIO gyroIO, ModuleIO frontLeftIO, ModuleIO frontRightIO,
+            ModuleIO rearLeftIO, ModuleIO rearRightIO, AprilTagVision vision, boolean useOdometryThread) {
+        m_gyroIO = gyroIO;
+        m_vision = vision;
+        m_modules = new MAXSwerveModule[] {
+            new MAXSwerveModule(frontLeftIO, DriveConstants.kFrontLeftChassisAngularOffset),
+            new MAXSwerveModule(frontRightIO, DriveConstants.kFrontRightChassisAngularOffset),
+            new MAXSwerveModule(rearLeftIO, DriveConstants.kBackLeftChassisAngularOffset),
+            new MAXSwerveModule(rearRightIO, DriveConstants.kBackRightChassisAngularOffset)
+        };
 
-    // Pose estimation class for tracking robot pose
-    SwerveDrivePoseEstimator m_poseEstimator = new SwerveDrivePoseEstimator(
-            DriveConstants.kDriveKinematics,
-            getHeading(),
-            getModulePositions(),
-            new Pose2d());
+        for (int ix = 0; ix < m_odometryPositions.length; ix++) {
+            m_odometryPositions[ix] = new SwerveModulePosition();
+        }
+        synchronized (m_odometryLock) {
+            sampleOdometryPositions();
+            m_poseEstimator = new SwerveDrivePoseEstimator(
+                    DriveConstants.kDriveKinematics,
+                    getHeading(),
+                    m_odometryPositions,
+                    new Pose2d());
+        }
 
-    private boolean m_isFirstPath = true;
+        m_pathCache.preloadAsync();
 
-    /** Creates a new DriveSubsystem. */
-    public DriveSubsystem() {
         AutoBuilder.configureHolonomic(
                 this::getPose, // Robot pose supplier
                 this::resetOdometry, // Method to reset odometry (will be called if your auto has a starting pose)
@@ -90,49 +209,182 @@ public class DriveSubsystem extends SubsystemBase {
                 this::driveRobotRelative, // Method that will drive the robot given ROBOT RELATIVE ChassisSpeeds
                 new HolonomicPathFollowerConfig( // HolonomicPathFollowerConfig, this should likely live in your
                                                  // Constants class
-                        new PIDConstants(5.0, 0.0, 0.0), // Translation PID constants
-                        new PIDConstants(5.0, 0.0, 0.0), // Rotation PID constants
+                        new PIDConstants(AutoConstants.kPathTranslationP, 0.0, 0.0), // Translation PID constants
+                        new PIDConstants(AutoConstants.kPathRotationP, 0.0, 0.0), // Rotation PID constants
                         Constants.DriveConstants.kMaxSpeedMetersPerSecond, // Max module speed, in m/s
                         0.4, // Drive base radius in meters. Distance from robot center to furthest module.
                         new ReplanningConfig() // Default path replanning config. See the API for the options here
                 ),
-                () -> {
-                    // Boolean supplier that controls when the path will be mirrored for the red
-                    // alliance
-                    // This will flip the path being followed to the red side of the field.
-                    // THE ORIGIN WILL REMAIN ON THE BLUE SIDE
-
-                    var alliance = DriverStation.getAlliance();
-                    if (alliance.isPresent()) {
-                        return alliance.get() == DriverStation.Alliance.Red;
-                    }
-                    return false;
-                },
+                // Boolean supplier that controls when the path will be mirrored for the red
+                // alliance. Never - getPathStep hands out paths the PathCache already
+                // flipped for the red alliance, so nothing is flipped while following.
+                // THE ORIGIN REMAINS ON THE BLUE SIDE
+                () -> false,
                 this // Reference to this subsystem to set requirements
         );
-        //PathPlannerLogging.setLogCurrentPoseCallback(pose -> Logger.recordOutput("Chassis/targetPose",pose));
+        PathPlannerLogging.setLogTargetPoseCallback(pose -> recordPose(m_targetPoseSignal, pose));
 
         PhotonCamera m_driverCamera = new PhotonCamera("Microsoft_LifeCam_HD-3000");
         m_driverCamera.setDriverMode(true);
+
+        if (useOdometryThread) {
+            double odometryFrequency = MathUtil.clamp(DriveConstants.kOdometryFrequencyHz,
+                    DriveConstants.kMinOdometryFrequencyHz, DriveConstants.kMaxOdometryFrequencyHz);
+            m_odometryNotifier = new Notifier(this::updateOdometry);
+            m_odometryNotifier.setName("Odometry");
+            m_odometryNotifier.startPeriodic(1.0 / odometryFrequency);
+        } else {
+            m_odometryNotifier = null;
+        }
+
+        if (m_vision != null) {
+            m_vision.start();
+        }
     }
 
     @Override
     public void periodic() {
-        // Update the odometry in the periodic block
-        m_poseEstimator.update(
-                getHeading(),
-                getModulePositions()
-                );
+        long startTime = System.nanoTime();
+
+        // Sample every module's encoders once - drive commands run after the
+        // subsystem periodic in the same scheduler loop and read this snapshot
+        double timestamp = Timer.getFPGATimestamp();
+        for (MAXSwerveModule module : m_modules) {
+            module.refreshSensors(timestamp);
+        }
+        m_gyroIO.updateInputs(m_gyroInputs);
+        if (m_odometryNotifier == null) {
+            updateOdometry();
+        }
+        if (m_vision != null) {
+            applyVisionMeasurements();
+        }
+
+        if (DriverStation.isDisabled()) {
+            updateAlliance();
+            // the first enabled loop's feedforward starts from where the modules are
+            for (MAXSwerveModule module : m_modules) {
+                module.resetSetpointHistory();
+            }
+        }
+
+        recordTelemetry();
+
+        m_loopTiming.recordSince(m_timingChannel, startTime);
+    }
+
+    /*
+     * Fuses the queued AprilTag measurements into the pose estimator.
+     * The vision thread already filtered them; the estimator's pose buffer
+     * compensates for the capture latency using each measurement's timestamp.
+     */
+    private void applyVisionMeasurements() {
+        AprilTagVision.Measurement measurement = m_vision.pollMeasurement();
+        if (measurement == null) {
+            return;
+        }
+        synchronized (m_odometryLock) {
+            while (measurement != null) {
+                m_poseEstimator.addVisionMeasurement(measurement.pose, measurement.timestampSeconds,
+                        measurement.stdDevs);
+                recordVision(measurement);
+                measurement = m_vision.pollMeasurement();
+            }
+            m_latestPose = m_poseEstimator.getEstimatedPosition();
+        }
+    }
+
+    private void recordVision(AprilTagVision.Measurement measurement) {
+        m_visionSample[0] = measurement.pose.getX();
+        m_visionSample[1] = measurement.pose.getY();
+        m_visionSample[2] = measurement.pose.getRotation().getRadians();
+        m_visionSample[3] = measurement.timestampSeconds;
+        m_visionSample[4] = measurement.tagCount;
+        m_visionSample[5] = measurement.averageDistance;
+        m_log.record(m_visionSignal, m_visionSample);
+    }
+
+    private void updateAlliance() {
+        Optional<Alliance> alliance = DriverStation.getAlliance();
+        boolean isAllianceKnown = alliance.isPresent();
+        boolean isRedAlliance = alliance.map(color -> color == Alliance.Red).orElse(false);
+        if (isRedAlliance && !m_isRedAlliance) {
+            m_pathCache.prepareRedAsync();
+        }
+        if (isAllianceKnown != m_isAllianceKnown || isRedAlliance != m_isRedAlliance) {
+            m_allianceChangeCount++;
+        }
+        m_isAllianceKnown = isAllianceKnown;
+        m_isRedAlliance = isRedAlliance;
+    }
+
+    private void recordTelemetry() {
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            m_moduleSample[ix * 2] = m_modules[ix].getDrivePosition();
+            m_moduleSample[ix * 2 + 1] = m_modules[ix].getChassisAngleRadians();
+        }
+        m_log.record(m_modulePositionsSignal, m_moduleSample);
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            ModuleIOInputs inputs = m_modules[ix].getInputs();
+            m_moduleInputsSample[ix * 3] = inputs.drivePositionMeters;
+            m_moduleInputsSample[ix * 3 + 1] = inputs.driveVelocityMetersPerSec;
+            m_moduleInputsSample[ix * 3 + 2] = inputs.turnPositionRad;
+        }
+        m_log.record(m_moduleInputsSignal, m_moduleInputsSample);
+        m_log.record(m_gyroInputsSignal, m_gyroInputs.angleDegrees);
+        m_log.record(m_headingSignal,
+                Math.toRadians(m_gyroInputs.angleDegrees * (DriveConstants.kGyroReversed ? -1.0 : 1.0)));
+        recordPose(m_poseSignal, getPose());
+    }
+
+    private void recordPose(int signal, Pose2d pose) {
+        recordPose(signal, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    private void recordPose(int signal, double x, double y, double rotation) {
+        m_poseSample[0] = x;
+        m_poseSample[1] = y;
+        m_poseSample[2] = rotation;
+        m_log.record(signal, m_poseSample);
+    }
+
+    private void recordTargetStates(double[] speeds, double[] angles) {
+        for (int ix = 0; ix < speeds.length; ix++) {
+            m_moduleSample[ix * 2] = speeds[ix];
+            m_moduleSample[ix * 2 + 1] = angles[ix];
+        }
+        m_log.record(m_targetStatesSignal, m_moduleSample);
+    }
+
+    /*
+     * Odometry thread body - runs at kOdometryFrequencyHz on the Notifier thread
+     * (or once per loop from periodic when there is no thread).
+     * Samples the gyro and all module encoders with a timestamp and integrates
+     * them into the pose estimator.
+     */
+    private void updateOdometry() {
+        synchronized (m_odometryLock) {
+            double timestamp = Timer.getFPGATimestamp();
+            sampleOdometryPositions();
+            m_latestPose = m_poseEstimator.updateWithTime(timestamp, getHeading(), m_odometryPositions);
+        }
+    }
 
+    /* Reads module positions into the odometry buffer - caller holds m_odometryLock */
+    private void sampleOdometryPositions() {
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            m_modules[ix].readOdometryPosition(m_odometryPositions[ix]);
+        }
     }
 
     /**
      * Returns the currently-estimated pose of the robot.
+     * Lock free - returns the latest estimate published by the odometry thread.
      *
      * @return The pose.
      */
     public Pose2d getPose() {
-        return m_poseEstimator.getEstimatedPosition();
+        return m_latestPose;
     }
 
     /**
@@ -141,14 +393,21 @@ public class DriveSubsystem extends SubsystemBase {
      * @param pose The pose to which to set the odometry.
      */
     public void resetOdometry(Pose2d pose) {
-        m_poseEstimator.resetPosition(
-                getHeading(),
-                getModulePositions(),    
-                pose);
+        synchronized (m_odometryLock) {
+            sampleOdometryPositions();
+            m_poseEstimator.resetPosition(
+                    getHeading(),
+                    m_odometryPositions,
+                    pose);
+            m_latestPose = m_poseEstimator.getEstimatedPosition();
+        }
     }
 
     public void visionPose(Pose2d pose, double timestamp){
-        m_poseEstimator.addVisionMeasurement(pose, timestamp);
+        synchronized (m_odometryLock) {
+            m_poseEstimator.addVisionMeasurement(pose, timestamp);
+            m_latestPose = m_poseEstimator.getEstimatedPosition();
+        }
     }
     /**
      * Method to drive the robot using joystick info.
@@ -158,77 +417,23 @@ public class DriveSubsystem extends SubsystemBase {
      * @param rot           Angular rate of the robot.
      * @param fieldRelative Whether the provided x and y speeds are relative to the
      *                      field.
-     * @param rateLimit     Whether to enable rate limiting for smoother control.
+     * @param rateLimit     Whether to limit the module steering velocity and drive
+     *                      acceleration (setpoint generator) to prevent wheel slip.
      */
     public void drive(double xSpeed, double ySpeed, double rot, boolean fieldRelative, boolean rateLimit) {
 
-        xSpeed = squareAxis(xSpeed);
-        ySpeed = squareAxis(ySpeed);
-        rot = squareAxis(rot);
-        
-        double xSpeedCommanded;
-        double ySpeedCommanded;
-
-        if (rateLimit) {
-            // Convert XY to polar for rate limiting
-            double inputTranslationDir = Math.atan2(ySpeed, xSpeed);
-            double inputTranslationMag = Math.sqrt(Math.pow(xSpeed, 2) + Math.pow(ySpeed, 2));
-
-            // Calculate the direction slew rate based on an estimate of the lateral
-            // acceleration
-            double directionSlewRate;
-            if (m_currentTranslationMag != 0.0) {
-                directionSlewRate = Math.abs(DriveConstants.kDirectionSlewRate / m_currentTranslationMag);
-            } else {
-                directionSlewRate = 500.0; // some high number that means the slew rate is effectively instantaneous
-            }
-
-            double currentTime = WPIUtilJNI.now() * 1e-6;
-            double elapsedTime = currentTime - m_prevTime;
-            double angleDif = SwerveUtils.AngleDifference(inputTranslationDir, m_currentTranslationDir);
-            if (angleDif < 0.45 * Math.PI) {
-                m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir,
-                        directionSlewRate * elapsedTime);
-                m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-            } else if (angleDif > 0.85 * Math.PI) {
-                if (m_currentTranslationMag > 1e-4) { // some small number to avoid floating-point errors with equality
-                                                      // checking
-                    // keep currentTranslationDir unchanged
-                    m_currentTranslationMag = m_magLimiter.calculate(0.0);
-                } else {
-                    m_currentTranslationDir = SwerveUtils.WrapAngle(m_currentTranslationDir + Math.PI);
-                    m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-                }
-            } else {
-                m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir,
-                        directionSlewRate * elapsedTime);
-                m_currentTranslationMag = m_magLimiter.calculate(0.0);
-            }
-            m_prevTime = currentTime;
-
-            xSpeedCommanded = m_currentTranslationMag * Math.cos(m_currentTranslationDir);
-            ySpeedCommanded = m_currentTranslationMag * Math.sin(m_currentTranslationDir);
-            m_currentRotation = m_rotLimiter.calculate(rot);
-
-        } else {
-            xSpeedCommanded = xSpeed;
-            ySpeedCommanded = ySpeed;
-            m_currentRotation = rot;
-        }
-
         // Convert the commanded speeds into the correct units for the drivetrain
-        double xSpeedDelivered = xSpeedCommanded * DriveConstants.kMaxSpeedMetersPerSecond;
-        double ySpeedDelivered = ySpeedCommanded * DriveConstants.kMaxSpeedMetersPerSecond;
-        double rotDelivered = m_currentRotation * DriveConstants.kMaxAngularSpeed;
+        double xSpeedDelivered = squareAxis(xSpeed) * DriveConstants.kMaxSpeedMetersPerSecond;
+        double ySpeedDelivered = squareAxis(ySpeed) * DriveConstants.kMaxSpeedMetersPerSecond;
+        double rotDelivered = squareAxis(rot) * DriveConstants.kMaxAngularSpeed;
 
         //get alliance color
-        Optional<Alliance> ally = DriverStation.getAlliance();
-        if (ally.isPresent() && ally.get() == Alliance.Red) {
+        if (m_isRedAlliance) {
             xSpeedDelivered *= -1;
             ySpeedDelivered *= -1;
         }
 
-        drive(new ChassisSpeeds(xSpeedDelivered, ySpeedDelivered, rotDelivered), fieldRelative);
+        driveSpeeds(xSpeedDelivered, ySpeedDelivered, rotDelivered, fieldRelative, rateLimit);
     }
 
     private double squareAxis(double axis) {
@@ -240,48 +445,96 @@ public class DriveSubsystem extends SubsystemBase {
     }
 
     private void drive(ChassisSpeeds speeds, boolean fieldRelative) {
-        if (fieldRelative)
-            speeds = ChassisSpeeds.fromFieldRelativeSpeeds(speeds, getPose().getRotation());
-        //speeds = ChassisSpeeds.discretize(speeds, LoggedRobot.defaultPeriodSecs);
-        var swerveModuleStates = DriveConstants.kDriveKinematics.toSwerveModuleStates(speeds);
-        SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, DriveConstants.kMaxSpeedMetersPerSecond);
-        setModuleStates(swerveModuleStates);
+        driveSpeeds(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond,
+                fieldRelative, false);
     }
 
-    private ChassisSpeeds getRobotRelativeSpeeds() {
-        return DriveConstants.kDriveKinematics.toChassisSpeeds(getModuleStates());
+    /*
+     * Allocation free equivalent of
+     * kDriveKinematics.toSwerveModuleStates(ChassisSpeeds.discretize(ChassisSpeeds.fromFieldRelativeSpeeds(...)))
+     * working on the preallocated module buffers, optionally through the setpoint generator
+     */
+    private void driveSpeeds(double vx, double vy, double omega, boolean fieldRelative, boolean rateLimit) {
+        if (fieldRelative) {
+            Rotation2d robotAngle = getPose().getRotation();
+            double robotVx = vx * robotAngle.getCos() + vy * robotAngle.getSin();
+            vy = -vx * robotAngle.getSin() + vy * robotAngle.getCos();
+            vx = robotVx;
+        }
+        // drive the arc that ends where translating while rotating for the loop would end,
+        // rather than skewing off to the side
+        SwerveUtils.Discretize(vx, vy, omega, DriveConstants.kDriveLoopPeriod, m_discretizedSpeeds);
+        vx = m_discretizedSpeeds[0];
+        vy = m_discretizedSpeeds[1];
+        if (rateLimit) {
+            double time = WPIUtilJNI.now() * 1e-6;
+            if (!m_isSetpointGenerated || m_setpointGenerator.needsReset(time)) {
+                resetSetpointGenerator();
+            }
+            m_setpointGenerator.calculate(vx, vy, omega, time, m_desiredSpeeds, m_desiredAngles);
+            setModuleStates(m_desiredSpeeds, m_desiredAngles);
+            m_isSetpointGenerated = true;
+            return;
+        }
+        SwerveUtils.ToModuleStates(vx, vy, omega,
+                DriveConstants.kModuleXMeters, DriveConstants.kModuleYMeters,
+                m_desiredSpeeds, m_desiredAngles);
+        SwerveUtils.DesaturateWheelSpeeds(m_desiredSpeeds, DriveConstants.kMaxSpeedMetersPerSecond);
+        setModuleStates(m_desiredSpeeds, m_desiredAngles);
     }
 
-    //@AutoLogOutput(key = "Chassis/ActualStates")
-    private SwerveModuleState[] getModuleStates() {
-        return new SwerveModuleState[] {
-                m_frontLeft.getState(),
-                m_frontRight.getState(),
-                m_rearLeft.getState(),
-                m_rearRight.getState()
-        };
+    /* Restarts the setpoint generator from the measured chassis and module state */
+    private void resetSetpointGenerator() {
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            m_measuredSpeeds[ix] = m_modules[ix].getDriveVelocity();
+            m_measuredAngles[ix] = m_modules[ix].getChassisAngleRadians();
+        }
+        ChassisSpeeds speeds = getRobotRelativeSpeeds();
+        m_setpointGenerator.reset(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond,
+                m_measuredSpeeds, m_measuredAngles);
     }
 
-    //@AutoLogOutput(key = "Chassis/ModulePositions")
-    private SwerveModulePosition[] getModulePositions(){
-        return new SwerveModulePosition[] {
-            m_frontLeft.getPosition(),
-            m_frontRight.getPosition(),
-            m_rearLeft.getPosition(),
-            m_rearRight.getPosition()
-        };
+    /*
+     * Forward kinematics into the reused ChassisSpeeds.
+     * Least squares solution for a module layout centered on the robot (sum of module x and y is zero),
+     * which matches kDriveKinematics.toChassisSpeeds for this chassis.
+     */
+    private ChassisSpeeds getRobotRelativeSpeeds() {
+        double vx = 0.0;
+        double vy = 0.0;
+        double omegaSum = 0.0;
+        double radiusSquaredSum = 0.0;
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            double speed = m_modules[ix].getDriveVelocity();
+            double angle = m_modules[ix].getChassisAngleRadians();
+            double moduleVx = speed * Math.cos(angle);
+            double moduleVy = speed * Math.sin(angle);
+            double moduleX = DriveConstants.kModuleXMeters[ix];
+            double moduleY = DriveConstants.kModuleYMeters[ix];
+            vx += moduleVx;
+            vy += moduleVy;
+            omegaSum += moduleX * moduleVy - moduleY * moduleVx;
+            radiusSquaredSum += moduleX * moduleX + moduleY * moduleY;
+        }
+        m_robotRelativeSpeeds.vxMetersPerSecond = vx / m_modules.length;
+        m_robotRelativeSpeeds.vyMetersPerSecond = vy / m_modules.length;
+        m_robotRelativeSpeeds.omegaRadiansPerSecond = omegaSum / radiusSquaredSum;
+        return m_robotRelativeSpeeds;
     }
 
     /**
      * Sets the wheels into an X formation to prevent movement.
      */
     public void setX() {
-        SwerveModuleState[] states = new SwerveModuleState[4];
-        states[0] = new SwerveModuleState(0, Rotation2d.fromDegrees(45));
-        states[1] = new SwerveModuleState(0, Rotation2d.fromDegrees(-45));
-        states[2] = new SwerveModuleState(0, Rotation2d.fromDegrees(-45));
-        states[3] = new SwerveModuleState(0, Rotation2d.fromDegrees(45));
-        setModuleStates(states);
+        setModuleStates(kX_SPEEDS, kX_ANGLES);
+    }
+
+    private void setModuleStates(double[] speeds, double[] angles) {
+        m_isSetpointGenerated = false;
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            m_modules[ix].setDesiredState(speeds[ix], angles[ix]);
+        }
+        recordTargetStates(speeds, angles);
     }
 
     /**
@@ -292,26 +545,33 @@ public class DriveSubsystem extends SubsystemBase {
     public void setModuleStates(SwerveModuleState[] desiredStates) {
         SwerveDriveKinematics.desaturateWheelSpeeds(
                 desiredStates, DriveConstants.kMaxSpeedMetersPerSecond);
-        m_frontLeft.setDesiredState(desiredStates[0]);
-        m_frontRight.setDesiredState(desiredStates[1]);
-        m_rearLeft.setDesiredState(desiredStates[2]);
-        m_rearRight.setDesiredState(desiredStates[3]);
-        //Logger.recordOutput("Chassis/TargetStates", desiredStates);
+        for (int ix = 0; ix < m_modules.length; ix++) {
+            m_desiredSpeeds[ix] = desiredStates[ix].speedMetersPerSecond;
+            m_desiredAngles[ix] = desiredStates[ix].angle.getRadians();
+        }
+        setModuleStates(m_desiredSpeeds, m_desiredAngles);
     }
 
     /** Zeroes the heading of the robot. */
     public void zeroHeading() {
-        m_gyro.reset();
+        m_gyroIO.reset();
     }
 
     /**
      * Returns the heading of the robot.
+     * Only called while holding m_odometryLock (or during construction).
      *
      * @return the robot's heading
      */
-    //@AutoLogOutput(key = "Chassis/Heading")
     private Rotation2d getHeading() {
-        return Rotation2d.fromDegrees(m_gyro.getAngle() * (DriveConstants.kGyroReversed ? -1.0 : 1.0));
+        // Rotation2d is immutable - only create a new one when the gyro angle changed
+        m_gyroIO.updateInputs(m_odometryGyroInputs);
+        double gyroAngle = m_odometryGyroInputs.angleDegrees;
+        if (gyroAngle != m_lastGyroAngle) {
+            m_heading = Rotation2d.fromDegrees(gyroAngle * (DriveConstants.kGyroReversed ? -1.0 : 1.0));
+            m_lastGyroAngle = gyroAngle;
+        }
+        return m_heading;
     }
     
     /* 
@@ -320,28 +580,115 @@ public class DriveSubsystem extends SubsystemBase {
      */
 
     public Command getPathStep(String pathName) {
-        // Load the path you want to follow using its name in the GUI
-        PathPlannerPath path = PathPlannerPath.fromPathFile(pathName);
+        // Trajectory for the path you want to follow using its name in the GUI - generated now
+        // (while the auto is built) from the cached path, already flipped when on the red alliance,
+        // starting from the rotation the previous step ends at
+        SampledTrajectory trajectory = m_trajectoryCache.getTrajectory(pathName, m_isRedAlliance, m_sequenceRotation);
+        if (trajectory == null) {
+            return Commands.print("path not found for " + pathName);
+        }
+        m_sequenceRotation = Rotation2d.fromRadians(trajectory.getEndRotation());
 
         // set starting position from first path
-        // needs to handle path.flip when drivestation is redalliance - this is blue only
+        // the command may be built well before auto starts (while disabled) so
+        // the odometry reset is part of the command rather than done here
         if (m_isFirstPath) {
 
-            var alliance = DriverStation.getAlliance();
-            if (alliance.isPresent()) {
-                if (alliance.get() == DriverStation.Alliance.Red) {
-                    resetOdometry(path.flipPath().getPreviewStartingHolonomicPose());
-                } else {
-                    resetOdometry(path.getPreviewStartingHolonomicPose());
-                }
+            if (m_isAllianceKnown) {
+                Pose2d startPose = m_pathCache.getPath(pathName, m_isRedAlliance).getPreviewStartingHolonomicPose();
                 m_isFirstPath = false;
+                return Commands.runOnce(() -> resetOdometry(startPose))
+                    .andThen(followTrajectory(trajectory));
             }
 
             //resetOdometry(path.getPreviewStartingHolonomicPose());
             //m_isFirstPath = false;
         }
 
-        // Create a path following command using AutoBuilder. This will also trigger event markers.
-        return AutoBuilder.followPath(path);
+        return followTrajectory(trajectory);
+    }
+
+    /*
+     * Follows a precomputed trajectory - the sampled field relative velocities as
+     * feedforward plus proportional feedback on the pose error.
+     */
+    private Command followTrajectory(SampledTrajectory trajectory) {
+        return new FunctionalCommand(
+                this::startTrajectory,
+                () -> followTrajectorySample(trajectory, Timer.getFPGATimestamp() - m_trajectoryStartTime),
+                interrupted -> endTrajectory(),
+                () -> Timer.getFPGATimestamp() - m_trajectoryStartTime >= trajectory.getDuration(),
+                this);
+    }
+
+    private void startTrajectory() {
+        m_trajectoryStartTime = Timer.getFPGATimestamp();
+        m_pathErrorSquaredSum = 0.0;
+        m_pathRotationSquaredSum = 0.0;
+        m_pathErrorMax = 0.0;
+        m_pathErrorSamples = 0;
+    }
+
+    /* Stops and logs the path's tracking error - rms and max translation, rms rotation */
+    private void endTrajectory() {
+        driveSpeeds(0.0, 0.0, 0.0, false, false);
+        if (m_pathErrorSamples == 0) {
+            return;
+        }
+        double rmsError = Math.sqrt(m_pathErrorSquaredSum / m_pathErrorSamples);
+        m_pathErrorSample[0] = rmsError;
+        m_pathErrorSample[1] = m_pathErrorMax;
+        m_pathErrorSample[2] = Math.sqrt(m_pathRotationSquaredSum / m_pathErrorSamples);
+        m_log.record(m_pathSummarySignal, m_pathErrorSample);
+        m_pathRmsDisplay.set(rmsError);
+    }
+
+    private void recordPathError(double xError, double yError, double rotationError) {
+        double errorSquared = xError * xError + yError * yError;
+        m_pathErrorSquaredSum += errorSquared;
+        m_pathRotationSquaredSum += rotationError * rotationError;
+        m_pathErrorMax = Math.max(m_pathErrorMax, Math.sqrt(errorSquared));
+        m_pathErrorSamples++;
+        m_pathErrorSample[0] = xError;
+        m_pathErrorSample[1] = yError;
+        m_pathErrorSample[2] = rotationError;
+        m_log.record(m_pathErrorSignal, m_pathErrorSample);
+    }
+
+    private void followTrajectorySample(SampledTrajectory trajectory, double time) {
+        trajectory.sample(time, m_trajectorySample);
+        double targetX = m_trajectorySample[SampledTrajectory.kX];
+        double targetY = m_trajectorySample[SampledTrajectory.kY];
+        double targetRotation = m_trajectorySample[SampledTrajectory.kROTATION];
+        recordPose(m_targetPoseSignal, targetX, targetY, targetRotation);
+
+        Pose2d pose = getPose();
+        double xError = targetX - pose.getX();
+        double yError = targetY - pose.getY();
+        double rotationError = MathUtil.angleModulus(targetRotation - pose.getRotation().getRadians());
+        recordPathError(xError, yError, rotationError);
+
+        double vx = m_trajectorySample[SampledTrajectory.kVX] + AutoConstants.kPathTranslationP * xError;
+        double vy = m_trajectorySample[SampledTrajectory.kVY] + AutoConstants.kPathTranslationP * yError;
+        double omega = m_trajectorySample[SampledTrajectory.kOMEGA] + AutoConstants.kPathRotationP * rotationError;
+        driveSpeeds(vx, vy, omega, true, false);
+    }
+
+    /*
+     * Marks the next path step as the first of a new auto sequence
+     * so it will set the starting position
+     */
+    public void startPathSequence() {
+        m_isFirstPath = true;
+        m_sequenceRotation = null;
+    }
+
+    /** Number of alliance changes seen while disabled (known/unknown or colour). */
+    public int getAllianceChangeCount() {
+        return m_allianceChangeCount;
+    }
+
+    public PathCache getPathCache() {
+        return m_pathCache;
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.Timer;
 import frc.robot.Constants.DriveConstants;
 import frc.utils.SwerveUtils;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
@@ -73,6 +74,12 @@ public class DriveSubsystemTemplated extends SubsystemBase {
 
   @Override
   public void periodic() {
+    double timestamp = Timer.getFPGATimestamp();
+    m_frontLeft.refreshSensors(timestamp);
+    m_frontRight.refreshSensors(timestamp);
+    m_rearLeft.refreshSensors(timestamp);
+    m_rearRight.refreshSensors(timestamp);
+
     // Update the odometry in the periodic block
     m_odometry.update(
         getHeading(),
@@ -0,0 +1,22 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/*
+ * Hardware seam for the drive gyro.
+ */
+public interface GyroIO {
+
+  public static class GyroIOInputs {
+    // raw yaw as reported by the gyro, kGyroReversed not applied
+    public double angleDegrees = 0.0;
+  }
+
+  /** Reads the gyro into the inputs object. */
+  public default void updateInputs(GyroIOInputs inputs) {}
+
+  /** Zeroes the yaw. */
+  public default void reset() {}
+}
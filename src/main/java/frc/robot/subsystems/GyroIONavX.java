@@ -0,0 +1,26 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import com.kauailabs.navx.frc.AHRS;
+
+import edu.wpi.first.wpilibj.SPI;
+
+/*
+ * GyroIO for the NavX on the MXP port.
+ */
+public class GyroIONavX implements GyroIO {
+  private final AHRS m_gyro = new AHRS(SPI.Port.kMXP);
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    inputs.angleDegrees = m_gyro.getAngle();
+  }
+
+  @Override
+  public void reset() {
+    m_gyro.reset();
+  }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.Timer;
+
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.SimConstants;
+
+/*
+ * GyroIO for simulation - integrates the chassis yaw rate seen by the simulated
+ * swerve modules (no wheel slip).
+ */
+public class GyroIOSim implements GyroIO {
+
+  private final ModuleIOSim[] m_modules;
+  private double m_yawRad = 0.0;
+  private double m_lastTime = Timer.getFPGATimestamp();
+
+  /**
+   * @param modules Front left, front right, rear left, rear right.
+   */
+  public GyroIOSim(ModuleIOSim... modules) {
+    m_modules = modules;
+  }
+
+  @Override
+  public synchronized void updateInputs(GyroIOInputs inputs) {
+    double now = Timer.getFPGATimestamp();
+    double dt = Math.min(now - m_lastTime, SimConstants.kMAX_STEP);
+    m_lastTime = now;
+
+    // least squares yaw rate for a module layout centered on the robot
+    double omegaSum = 0.0;
+    double radiusSquaredSum = 0.0;
+    for (int ix = 0; ix < m_modules.length; ix++) {
+      double speed = m_modules[ix].getDriveVelocity();
+      double angle = m_modules[ix].getChassisAngle();
+      double moduleX = DriveConstants.kModuleXMeters[ix];
+      double moduleY = DriveConstants.kModuleYMeters[ix];
+      omegaSum += moduleX * speed * Math.sin(angle) - moduleY * speed * Math.cos(angle);
+      radiusSquaredSum += moduleX * moduleX + moduleY * moduleY;
+    }
+    m_yawRad += omegaSum / radiusSquaredSum * dt;
+
+    // NavX yaw is clockwise positive, reversed by DriveSubsystem when kGyroReversed
+    inputs.angleDegrees = Math.toDegrees(m_yawRad) * (DriveConstants.kGyroReversed ? -1.0 : 1.0);
+  }
+
+  @Override
+  public synchronized void reset() {
+    m_yawRad = 0.0;
+  }
+}
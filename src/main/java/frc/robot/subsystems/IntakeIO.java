@@ -0,0 +1,27 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/*
+ * Hardware seam for the NoteIntakeSubsystem - spinner and lift motors and
+ * their limit switches.
+ */
+public interface IntakeIO {
+
+  public static class IntakeIOInputs {
+    public boolean isForwardLimit = false;
+    public boolean isReverseLimit = false;
+    public boolean isNoteLoaded = false;
+  }
+
+  /** Reads the limit switches into the inputs object. */
+  public default void updateInputs(IntakeIOInputs inputs) {}
+
+  /** Open loop spinner output, -1 to 1. */
+  public default void setSpinnerSpeed(double speed) {}
+
+  /** Open loop lift output, -1 to 1. */
+  public default void setLiftSpeed(double speed) {}
+}
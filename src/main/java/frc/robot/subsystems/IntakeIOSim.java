@@ -0,0 +1,85 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+import frc.robot.Constants.SimConstants;
+
+/*
+ * IntakeIO for simulation.
+ * The lift is a NEO driven arm between hard stops; its limit switches close at
+ * either end of travel and, like the SPARK MAX limit inputs, stop the motor
+ * driving further into them.  The robot starts with a preloaded note, spinning
+ * the intake in picks up a note, spinning it out releases it.
+ */
+public class IntakeIOSim implements IntakeIO {
+
+  private final DCMotorSim m_liftSim = new DCMotorSim(DCMotor.getNEO(1),
+      SimConstants.kINTAKE_LIFT_REDUCTION, SimConstants.kINTAKE_LIFT_MOI);
+
+  private double m_liftSpeed = 0.0;
+  private double m_spinnerSpeed = 0.0;
+  private boolean m_isNoteLoaded = true;
+  private double m_spinnerTime = 0.0; // time spent spinning towards a note change
+  private double m_lastTime = Timer.getFPGATimestamp();
+
+  @Override
+  public synchronized void updateInputs(IntakeIOInputs inputs) {
+    double now = Timer.getFPGATimestamp();
+    double dt = Math.min(now - m_lastTime, SimConstants.kMAX_STEP);
+    m_lastTime = now;
+    if (dt > 0.0) {
+      step(dt);
+    }
+    inputs.isForwardLimit = isForwardLimit();
+    inputs.isReverseLimit = isReverseLimit();
+    inputs.isNoteLoaded = m_isNoteLoaded;
+  }
+
+  @Override
+  public synchronized void setSpinnerSpeed(double speed) {
+    m_spinnerSpeed = speed;
+  }
+
+  @Override
+  public synchronized void setLiftSpeed(double speed) {
+    m_liftSpeed = speed;
+  }
+
+  private boolean isForwardLimit() {
+    return m_liftSim.getAngularPositionRad()
+        >= SimConstants.kINTAKE_LIFT_TRAVEL_RAD - SimConstants.kINTAKE_LIMIT_TOLERANCE_RAD;
+  }
+
+  private boolean isReverseLimit() {
+    return m_liftSim.getAngularPositionRad() <= SimConstants.kINTAKE_LIMIT_TOLERANCE_RAD;
+  }
+
+  private void step(double dt) {
+    double liftSpeed = m_liftSpeed;
+    if ((liftSpeed > 0 && isForwardLimit()) || (liftSpeed < 0 && isReverseLimit())) {
+      liftSpeed = 0.0;
+    }
+    m_liftSim.setInputVoltage(liftSpeed * RobotController.getBatteryVoltage());
+    m_liftSim.update(dt);
+
+    // hard stops
+    double position = m_liftSim.getAngularPositionRad();
+    if (position < 0.0 || position > SimConstants.kINTAKE_LIFT_TRAVEL_RAD) {
+      m_liftSim.setState(Math.max(0.0, Math.min(position, SimConstants.kINTAKE_LIFT_TRAVEL_RAD)), 0.0);
+    }
+
+    boolean isChanging = m_isNoteLoaded ? m_spinnerSpeed < 0 : m_spinnerSpeed > 0;
+    m_spinnerTime = isChanging ? m_spinnerTime + dt : 0.0;
+    if (m_spinnerTime >= (m_isNoteLoaded ? SimConstants.kNOTE_EJECT_TIME : SimConstants.kNOTE_PICKUP_TIME)) {
+      m_isNoteLoaded = !m_isNoteLoaded;
+      m_spinnerTime = 0.0;
+    }
+  }
+}
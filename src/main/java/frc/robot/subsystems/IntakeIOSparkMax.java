@@ -0,0 +1,71 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.SparkLimitSwitch;
+import com.revrobotics.CANSparkBase.IdleMode;
+import com.revrobotics.CANSparkLowLevel.MotorType;
+
+import frc.robot.Constants.IntakeConstants;
+import frc.utils.SparkFingerprint;
+import frc.utils.SparkStatusFrames;
+
+/*
+ * IntakeIO for the intake's two SPARK MAX.
+ * The note sensor is wired to the spinner's forward limit input and the lift
+ * end of travel switches to the lift's limit inputs.
+ */
+public class IntakeIOSparkMax implements IntakeIO {
+
+  private CANSparkMax m_motorIntakeSpinner;
+  private CANSparkMax m_motorIntakeLift;
+  private SparkLimitSwitch m_isNoteLoaded;
+  private SparkLimitSwitch m_isForwardLimit;
+  private SparkLimitSwitch m_isReverseLimit;
+
+  // hashes of the configuration below, see SparkFingerprint
+  private static final int kSPINNER_FINGERPRINT = SparkFingerprint.of(3, IdleMode.kBrake.ordinal());
+  private static final int kLIFT_FINGERPRINT = SparkFingerprint.of(4, 1, IdleMode.kBrake.ordinal());
+
+  public IntakeIOSparkMax() {
+    m_motorIntakeSpinner = new CANSparkMax(IntakeConstants.kINTAKE_SPIN_MOTOR_ID, MotorType.kBrushless);
+    m_motorIntakeLift = new CANSparkMax(IntakeConstants.kINTAKE_LIFT_MOTOR_ID, MotorType.kBrushless);
+    // reset and configure (then burn flash) only when the saved configuration differs
+    SparkFingerprint.configureIfChanged(m_motorIntakeSpinner, kSPINNER_FINGERPRINT, () -> {
+      m_motorIntakeSpinner.restoreFactoryDefaults();
+      m_motorIntakeSpinner.setIdleMode(IdleMode.kBrake);
+    });
+    SparkFingerprint.configureIfChanged(m_motorIntakeLift, kLIFT_FINGERPRINT, () -> {
+      m_motorIntakeLift.restoreFactoryDefaults();
+      m_motorIntakeLift.setInverted(true);
+      m_motorIntakeLift.setIdleMode(IdleMode.kBrake);
+    });
+    // only the limit switch inputs are read
+    SparkStatusFrames.LIMIT_SWITCHES.apply(m_motorIntakeSpinner);
+    SparkStatusFrames.LIMIT_SWITCHES.apply(m_motorIntakeLift);
+
+    m_isNoteLoaded = m_motorIntakeSpinner.getForwardLimitSwitch(SparkLimitSwitch.Type.kNormallyOpen);
+    m_isForwardLimit = m_motorIntakeLift.getForwardLimitSwitch(SparkLimitSwitch.Type.kNormallyOpen);
+    m_isReverseLimit = m_motorIntakeLift.getReverseLimitSwitch(SparkLimitSwitch.Type.kNormallyOpen);
+  }
+
+  @Override
+  public void updateInputs(IntakeIOInputs inputs) {
+    inputs.isForwardLimit = m_isForwardLimit.isPressed();
+    inputs.isReverseLimit = m_isReverseLimit.isPressed();
+    inputs.isNoteLoaded = m_isNoteLoaded.isPressed();
+  }
+
+  @Override
+  public void setSpinnerSpeed(double speed) {
+    m_motorIntakeSpinner.set(speed);
+  }
+
+  @Override
+  public void setLiftSpeed(double speed) {
+    m_motorIntakeLift.set(speed);
+  }
+}
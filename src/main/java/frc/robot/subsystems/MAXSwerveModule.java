@@ -4,135 +4,171 @@
 
 package frc.robot.subsystems;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
 
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.SparkAbsoluteEncoder.Type;
-import com.revrobotics.SparkPIDController;
-import com.revrobotics.AbsoluteEncoder;
-import com.revrobotics.RelativeEncoder;
-
+import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.ModuleConstants;
+import frc.robot.subsystems.ModuleIO.ModuleIOInputs;
 
 public class MAXSwerveModule {
-  private final CANSparkMax m_drivingSparkMax;
-  private final CANSparkMax m_turningSparkMax;
-
-  private final RelativeEncoder m_drivingEncoder;
-  private final AbsoluteEncoder m_turningEncoder;
-
-  private final SparkPIDController m_drivingPIDController;
-  private final SparkPIDController m_turningPIDController;
+  private final ModuleIO m_io;
+  private final ModuleIOInputs m_inputs = new ModuleIOInputs();
+  private final ModuleIOInputs m_odometryInputs = new ModuleIOInputs();
 
   private double m_chassisAngularOffset = 0;
-  private SwerveModuleState m_desiredState = new SwerveModuleState(0.0, new Rotation2d());
+  private double m_desiredSpeed = 0.0;
+  private double m_desiredAngle = 0.0;
+
+  // Last setpoints (module frame, after optimization, drive speed before cosine
+  // scaling) - the feedforward comes from the change between consecutive setpoints
+  private double m_lastDriveSetpoint = 0.0;
+  private double m_lastTurnSetpoint;
+
+  // State and position are owned by the module and updated in place every call.
+  // Rotation2d is immutable, so a new one is created whenever the measured angle
+  // changes - the control loop reads the primitive getters instead.
+  private final SwerveModuleState m_state = new SwerveModuleState();
+  private final SwerveModulePosition m_position = new SwerveModulePosition();
+  private Rotation2d m_angle = new Rotation2d();
+  private double m_lastAngle = 0.0;
+
+  // Sensor snapshot - the encoders are read through JNI once per scheduler loop
+  // by refreshSensors() and every consumer in that loop reads these values
+  private double m_drivingPosition = 0.0;
+  private double m_drivingVelocity = 0.0;
+  private double m_turningPosition = 0.0;
+  private double m_sampleTimestamp = 0.0;
+
+  // Odometry thread angle cache - only touched by DriveSubsystem's odometry thread
+  private Rotation2d m_odometryAngle = new Rotation2d();
+  private double m_lastOdometryAngle = 0.0;
 
   /**
-   * Constructs a MAXSwerveModule and configures the driving and turning motor,
-   * encoder, and PID controller. This configuration is specific to the REV
-   * MAXSwerve Module built with NEOs, SPARKS MAX, and a Through Bore
-   * Encoder.
+   * Constructs a MAXSwerveModule on the REV MAXSwerve hardware (NEOs, SPARKS MAX,
+   * and a Through Bore Encoder).
    */
   public MAXSwerveModule(int drivingCANId, int turningCANId, double chassisAngularOffset) {
-    m_drivingSparkMax = new CANSparkMax(drivingCANId, MotorType.kBrushless);
-    m_turningSparkMax = new CANSparkMax(turningCANId, MotorType.kBrushless);
-
-    // Factory reset, so we get the SPARKS MAX to a known state before configuring
-    // them. This is useful in case a SPARK MAX is swapped out.
-    m_drivingSparkMax.restoreFactoryDefaults();
-    m_turningSparkMax.restoreFactoryDefaults();
-
-    // Setup encoders and PID controllers for the driving and turning SPARKS MAX.
-    m_drivingEncoder = m_drivingSparkMax.getEncoder();
-    m_turningEncoder = m_turningSparkMax.getAbsoluteEncoder(Type.kDutyCycle);
-    m_drivingPIDController = m_drivingSparkMax.getPIDController();
-    m_turningPIDController = m_turningSparkMax.getPIDController();
-    m_drivingPIDController.setFeedbackDevice(m_drivingEncoder);
-    m_turningPIDController.setFeedbackDevice(m_turningEncoder);
-
-    // Apply position and velocity conversion factors for the driving encoder. The
-    // native units for position and velocity are rotations and RPM, respectively,
-    // but we want meters and meters per second to use with WPILib's swerve APIs.
-    m_drivingEncoder.setPositionConversionFactor(ModuleConstants.kDrivingEncoderPositionFactor);
-    m_drivingEncoder.setVelocityConversionFactor(ModuleConstants.kDrivingEncoderVelocityFactor);
-
-    // Apply position and velocity conversion factors for the turning encoder. We
-    // want these in radians and radians per second to use with WPILib's swerve
-    // APIs.
-    m_turningEncoder.setPositionConversionFactor(ModuleConstants.kTurningEncoderPositionFactor);
-    m_turningEncoder.setVelocityConversionFactor(ModuleConstants.kTurningEncoderVelocityFactor);
-
-    // Invert the turning encoder, since the output shaft rotates in the opposite direction of
-    // the steering motor in the MAXSwerve Module.
-    m_turningEncoder.setInverted(ModuleConstants.kTurningEncoderInverted);
-
-    // Enable PID wrap around for the turning motor. This will allow the PID
-    // controller to go through 0 to get to the setpoint i.e. going from 350 degrees
-    // to 10 degrees will go through 0 rather than the other direction which is a
-    // longer route.
-    m_turningPIDController.setPositionPIDWrappingEnabled(true);
-    m_turningPIDController.setPositionPIDWrappingMinInput(ModuleConstants.kTurningEncoderPositionPIDMinInput);
-    m_turningPIDController.setPositionPIDWrappingMaxInput(ModuleConstants.kTurningEncoderPositionPIDMaxInput);
-
-    // Set the PID gains for the driving motor. Note these are example gains, and you
-    // may need to tune them for your own robot!
-    m_drivingPIDController.setP(ModuleConstants.kDrivingP);
-    m_drivingPIDController.setI(ModuleConstants.kDrivingI);
-    m_drivingPIDController.setD(ModuleConstants.kDrivingD);
-    m_drivingPIDController.setFF(ModuleConstants.kDrivingFF);
-    m_drivingPIDController.setOutputRange(ModuleConstants.kDrivingMinOutput,
-        ModuleConstants.kDrivingMaxOutput);
-
-    // Set the PID gains for the turning motor. Note these are example gains, and you
-    // may need to tune them for your own robot!
-    m_turningPIDController.setP(ModuleConstants.kTurningP);
-    m_turningPIDController.setI(ModuleConstants.kTurningI);
-    m_turningPIDController.setD(ModuleConstants.kTurningD);
-    m_turningPIDController.setFF(ModuleConstants.kTurningFF);
-    m_turningPIDController.setOutputRange(ModuleConstants.kTurningMinOutput,
-        ModuleConstants.kTurningMaxOutput);
-
-    m_drivingSparkMax.setIdleMode(ModuleConstants.kDrivingMotorIdleMode);
-    m_turningSparkMax.setIdleMode(ModuleConstants.kTurningMotorIdleMode);
-    m_drivingSparkMax.setSmartCurrentLimit(ModuleConstants.kDrivingMotorCurrentLimit);
-    m_turningSparkMax.setSmartCurrentLimit(ModuleConstants.kTurningMotorCurrentLimit);
-
-    // Save the SPARK MAX configurations. If a SPARK MAX browns out during
-    // operation, it will maintain the above configurations.
-    m_drivingSparkMax.burnFlash();
-    m_turningSparkMax.burnFlash();
+    this(new ModuleIOSparkMax(drivingCANId, turningCANId), chassisAngularOffset);
+  }
+
+  /**
+   * Constructs a MAXSwerveModule on the given hardware seam.
+   */
+  public MAXSwerveModule(ModuleIO io, double chassisAngularOffset) {
+    m_io = io;
 
     m_chassisAngularOffset = chassisAngularOffset;
-    m_desiredState.angle = new Rotation2d(m_turningEncoder.getPosition());
-    m_drivingEncoder.setPosition(0);
+    refreshSensors(Timer.getFPGATimestamp());
+    m_desiredAngle = m_turningPosition - m_chassisAngularOffset;
+    resetSetpointHistory();
+  }
+
+  /**
+   * Samples the driving and turning encoders into the module's snapshot.
+   * Call once per scheduler loop before anything reads the module.
+   *
+   * @param timestamp FPGA time of the sample in seconds.
+   */
+  public void refreshSensors(double timestamp) {
+    m_io.updateInputs(m_inputs);
+    m_drivingPosition = m_inputs.drivePositionMeters;
+    m_drivingVelocity = m_inputs.driveVelocityMetersPerSec;
+    m_turningPosition = m_inputs.turnPositionRad;
+    m_sampleTimestamp = timestamp;
+  }
+
+  /**
+   * Returns the raw sensor inputs of the current snapshot (for logging).
+   */
+  public ModuleIOInputs getInputs() {
+    return m_inputs;
+  }
+
+  /**
+   * Reads the module position straight from the encoders for the high frequency
+   * odometry thread, independent of the once per loop snapshot.
+   * Must only be called from one thread (the odometry thread, or under its lock).
+   *
+   * @param position Position updated in place with the chassis relative angle.
+   */
+  public void readOdometryPosition(SwerveModulePosition position) {
+    m_io.updateInputs(m_odometryInputs);
+    position.distanceMeters = m_odometryInputs.drivePositionMeters;
+    double angle = m_odometryInputs.turnPositionRad - m_chassisAngularOffset;
+    if (angle != m_lastOdometryAngle) {
+      m_odometryAngle = new Rotation2d(angle);
+      m_lastOdometryAngle = angle;
+    }
+    position.angle = m_odometryAngle;
+  }
+
+  /**
+   * Returns the FPGA time in seconds of the current sensor snapshot.
+   */
+  public double getSampleTimestamp() {
+    return m_sampleTimestamp;
+  }
+
+  /*
+   * Returns the chassis relative module angle, reusing the last Rotation2d
+   * while the angle is unchanged.
+   */
+  private Rotation2d getChassisAngle(double angleRadians) {
+    if (angleRadians != m_lastAngle) {
+      m_angle = new Rotation2d(angleRadians);
+      m_lastAngle = angleRadians;
+    }
+    return m_angle;
+  }
+
+  /** Driving encoder position in meters from the sensor snapshot. */
+  public double getDrivePosition() {
+    return m_drivingPosition;
+  }
+
+  /** Wheel velocity in meters per second from the sensor snapshot. */
+  public double getDriveVelocity() {
+    return m_drivingVelocity;
+  }
+
+  /**
+   * Chassis relative module angle in radians from the sensor snapshot - the
+   * allocation free alternative to getState().angle for the control loop.
+   */
+  public double getChassisAngleRadians() {
+    return m_turningPosition - m_chassisAngularOffset;
   }
 
   /**
-   * Returns the current state of the module.
+   * Returns the current state of the module from the sensor snapshot.
+   * The returned object is owned by the module and updated in place by the next call.
    *
    * @return The current state of the module.
    */
   public SwerveModuleState getState() {
     // Apply chassis angular offset to the encoder position to get the position
     // relative to the chassis.
-    return new SwerveModuleState(m_drivingEncoder.getVelocity(),
-        new Rotation2d(m_turningEncoder.getPosition() - m_chassisAngularOffset));
+    m_state.speedMetersPerSecond = m_drivingVelocity;
+    m_state.angle = getChassisAngle(m_turningPosition - m_chassisAngularOffset);
+    return m_state;
   }
 
   /**
-   * Returns the current position of the module.
+   * Returns the current position of the module from the sensor snapshot.
+   * The returned object is owned by the module and updated in place by the next call.
    *
    * @return The current position of the module.
    */
   public SwerveModulePosition getPosition() {
     // Apply chassis angular offset to the encoder position to get the position
     // relative to the chassis.
-    return new SwerveModulePosition(
-        m_drivingEncoder.getPosition(),
-        new Rotation2d(m_turningEncoder.getPosition() - m_chassisAngularOffset));
+    m_position.distanceMeters = m_drivingPosition;
+    m_position.angle = getChassisAngle(m_turningPosition - m_chassisAngularOffset);
+    return m_position;
   }
 
   /**
@@ -141,24 +177,73 @@ public class MAXSwerveModule {
    * @param desiredState Desired state with speed and angle.
    */
   public void setDesiredState(SwerveModuleState desiredState) {
+    setDesiredState(desiredState.speedMetersPerSecond, desiredState.angle.getRadians());
+  }
+
+  /**
+   * Sets the desired state for the module without allocating.
+   *
+   * @param speedMetersPerSecond Desired module speed.
+   * @param angleRadians         Desired chassis relative module angle.
+   */
+  public void setDesiredState(double speedMetersPerSecond, double angleRadians) {
     // Apply chassis angular offset to the desired state.
-    SwerveModuleState correctedDesiredState = new SwerveModuleState();
-    correctedDesiredState.speedMetersPerSecond = desiredState.speedMetersPerSecond;
-    correctedDesiredState.angle = desiredState.angle.plus(Rotation2d.fromRadians(m_chassisAngularOffset));
+    double correctedSpeed = speedMetersPerSecond;
+    double correctedAngle = angleRadians + m_chassisAngularOffset;
 
     // Optimize the reference state to avoid spinning further than 90 degrees.
-    SwerveModuleState optimizedDesiredState = SwerveModuleState.optimize(correctedDesiredState,
-        new Rotation2d(m_turningEncoder.getPosition()));
+    double angleError = MathUtil.angleModulus(correctedAngle - m_turningPosition);
+    if (Math.abs(angleError) > Math.PI / 2) {
+      correctedSpeed = -correctedSpeed;
+      correctedAngle += Math.PI;
+      angleError = MathUtil.angleModulus(angleError + Math.PI);
+    }
+
+    // Cosine compensation - only drive the part of the speed along the measured
+    // wheel angle, so a module still turning does not push the robot sideways.
+    // Only the velocity setpoint and its kV term are scaled; the acceleration comes
+    // from the requested speed, or the steering would show up as acceleration.
+    double scaledSpeed = correctedSpeed * Math.cos(angleError);
+
+    // Feedforward from the setpoint change over the loop - drive acceleration and
+    // steering velocity.  A change the module cannot follow (a jump such as setX)
+    // gets no feedforward and is left to the closed loops.
+    correctedAngle = MathUtil.angleModulus(correctedAngle);
+    double acceleration = (correctedSpeed - m_lastDriveSetpoint) / DriveConstants.kDriveLoopPeriod;
+    if (Math.abs(acceleration) > ModuleConstants.kDrivingMaxAcceleration) {
+      acceleration = 0.0;
+    }
+    double steerVelocity = MathUtil.angleModulus(correctedAngle - m_lastTurnSetpoint) / DriveConstants.kDriveLoopPeriod;
+    if (Math.abs(steerVelocity) > ModuleConstants.kTurningMaxVelocity) {
+      steerVelocity = 0.0;
+    }
+    m_lastDriveSetpoint = correctedSpeed;
+    m_lastTurnSetpoint = correctedAngle;
 
     // Command driving and turning SPARKS MAX towards their respective setpoints.
-    m_drivingPIDController.setReference(optimizedDesiredState.speedMetersPerSecond, CANSparkMax.ControlType.kVelocity);
-    m_turningPIDController.setReference(optimizedDesiredState.angle.getRadians(), CANSparkMax.ControlType.kPosition);
+    double driveFeedforward = ModuleConstants.kDrivingS * Math.signum(correctedSpeed)
+        + ModuleConstants.kDrivingV * scaledSpeed
+        + ModuleConstants.kDrivingA * acceleration;
+    m_io.setDriveVelocity(scaledSpeed, driveFeedforward);
+    m_io.setTurnPosition(correctedAngle, ModuleConstants.kTurningV * steerVelocity);
+
+    m_desiredSpeed = speedMetersPerSecond;
+    m_desiredAngle = angleRadians;
+  }
 
-    m_desiredState = desiredState;
+  /**
+   * Restarts the feedforward setpoint history from the sensor snapshot, so the first
+   * setpoint afterwards is not differentiated against a stale one.  Call while disabled.
+   */
+  public void resetSetpointHistory() {
+    m_lastDriveSetpoint = m_drivingVelocity;
+    m_lastTurnSetpoint = m_turningPosition;
   }
 
   /** Zeroes all the SwerveModule encoders. */
   public void resetEncoders() {
-    m_drivingEncoder.setPosition(0);
+    m_io.resetDrivePosition();
+    m_drivingPosition = 0;
+    resetSetpointHistory();
   }
 }
@@ -0,0 +1,39 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/*
+ * Hardware seam for one swerve module.
+ * MAXSwerveModule does the module math and talks to the motors only through
+ * this interface, so the same module code runs on the robot (ModuleIOSparkMax)
+ * and in offline replay.
+ */
+public interface ModuleIO {
+
+  public static class ModuleIOInputs {
+    public double drivePositionMeters = 0.0;
+    public double driveVelocityMetersPerSec = 0.0;
+    // absolute turning encoder, module frame (chassis offset not applied)
+    public double turnPositionRad = 0.0;
+  }
+
+  /** Reads the sensors into the inputs object. */
+  public default void updateInputs(ModuleIOInputs inputs) {}
+
+  /**
+   * Closed loop driving velocity setpoint in meters per second, plus a feedforward
+   * in volts added to the closed loop output.
+   */
+  public default void setDriveVelocity(double velocityMetersPerSec, double feedforwardVolts) {}
+
+  /**
+   * Closed loop turning position setpoint in radians (module frame), plus a feedforward
+   * in volts added to the closed loop output.
+   */
+  public default void setTurnPosition(double positionRad, double feedforwardVolts) {}
+
+  /** Zeroes the driving encoder. */
+  public default void resetDrivePosition() {}
+}
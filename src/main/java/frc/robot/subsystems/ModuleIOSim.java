@@ -0,0 +1,109 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+import frc.robot.Constants.ModuleConstants;
+import frc.robot.Constants.SimConstants;
+
+/*
+ * ModuleIO physics model of a MAXSwerve module.
+ * The SPARK MAX closed loops are emulated with the real ModuleConstants gains
+ * at the controller's 1 ms rate, so tuning done in simulation carries over.
+ * The model steps by the time elapsed since the last read, so it can be read
+ * from both the main loop and the odometry thread.
+ */
+public class ModuleIOSim implements ModuleIO {
+
+  private static final double kWHEEL_RADIUS = ModuleConstants.kWheelDiameterMeters / 2;
+
+  private final DCMotorSim m_driveSim = new DCMotorSim(DCMotor.getNEO(1),
+      ModuleConstants.kDrivingMotorReduction, SimConstants.kDRIVE_MOI);
+  private final DCMotorSim m_turnSim = new DCMotorSim(DCMotor.getNeo550(1),
+      ModuleConstants.kTurningMotorReduction, SimConstants.kTURN_MOI);
+
+  // absolute encoder reading with the wheel pointing forward
+  private final double m_chassisAngularOffset;
+  private double m_driveSetpoint = 0.0;
+  private double m_turnSetpoint;
+  // arbitrary feedforward in volts, added to the emulated closed loop outputs
+  private double m_driveFeedforward = 0.0;
+  private double m_turnFeedforward = 0.0;
+  private double m_lastTime = Timer.getFPGATimestamp();
+
+  public ModuleIOSim(double chassisAngularOffset) {
+    m_chassisAngularOffset = chassisAngularOffset;
+    m_turnSetpoint = MathUtil.angleModulus(chassisAngularOffset);
+  }
+
+  @Override
+  public synchronized void updateInputs(ModuleIOInputs inputs) {
+    step();
+    inputs.drivePositionMeters = m_driveSim.getAngularPositionRad() * kWHEEL_RADIUS;
+    inputs.driveVelocityMetersPerSec = getDriveVelocity();
+    inputs.turnPositionRad = getTurnPosition();
+  }
+
+  @Override
+  public synchronized void setDriveVelocity(double velocityMetersPerSec, double feedforwardVolts) {
+    m_driveSetpoint = velocityMetersPerSec;
+    m_driveFeedforward = feedforwardVolts;
+  }
+
+  @Override
+  public synchronized void setTurnPosition(double positionRad, double feedforwardVolts) {
+    m_turnSetpoint = positionRad;
+    m_turnFeedforward = feedforwardVolts;
+  }
+
+  @Override
+  public synchronized void resetDrivePosition() {
+    m_driveSim.setState(0.0, m_driveSim.getAngularVelocityRadPerSec());
+  }
+
+  /** Wheel velocity in meters per second. */
+  public synchronized double getDriveVelocity() {
+    return m_driveSim.getAngularVelocityRadPerSec() * kWHEEL_RADIUS;
+  }
+
+  /** Wheel angle relative to the chassis in radians. */
+  public synchronized double getChassisAngle() {
+    return m_turnSim.getAngularPositionRad();
+  }
+
+  /* absolute encoder - 0 to 2 pi like the Through Bore Encoder */
+  private double getTurnPosition() {
+    return MathUtil.inputModulus(m_turnSim.getAngularPositionRad() + m_chassisAngularOffset, 0.0, 2 * Math.PI);
+  }
+
+  private void step() {
+    double now = Timer.getFPGATimestamp();
+    double elapsed = Math.min(now - m_lastTime, SimConstants.kMAX_STEP);
+    m_lastTime = now;
+    double volts = RobotController.getBatteryVoltage();
+    while (elapsed > 1e-9) {
+      double dt = Math.min(elapsed, SimConstants.kCONTROL_PERIOD);
+      elapsed -= dt;
+
+      double driveOutput = ModuleConstants.kDrivingFF * m_driveSetpoint
+          + ModuleConstants.kDrivingP * (m_driveSetpoint - getDriveVelocity())
+          + m_driveFeedforward / volts;
+      double turnOutput = ModuleConstants.kTurningP
+          * MathUtil.angleModulus(m_turnSetpoint - getTurnPosition())
+          + m_turnFeedforward / volts;
+      m_driveSim.setInputVoltage(volts * MathUtil.clamp(driveOutput,
+          ModuleConstants.kDrivingMinOutput, ModuleConstants.kDrivingMaxOutput));
+      m_turnSim.setInputVoltage(volts * MathUtil.clamp(turnOutput,
+          ModuleConstants.kTurningMinOutput, ModuleConstants.kTurningMaxOutput));
+      m_driveSim.update(dt);
+      m_turnSim.update(dt);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.SparkAbsoluteEncoder.Type;
+import com.revrobotics.SparkPIDController;
+import com.revrobotics.AbsoluteEncoder;
+import com.revrobotics.RelativeEncoder;
+
+import frc.robot.Constants.ModuleConstants;
+import frc.utils.SparkFingerprint;
+import frc.utils.SparkStatusFrames;
+
+/*
+ * ModuleIO for the REV MAXSwerve module - driving and turning SPARK MAX with
+ * the NEO's built in encoder and a Through Bore absolute encoder.
+ */
+public class ModuleIOSparkMax implements ModuleIO {
+  private final CANSparkMax m_drivingSparkMax;
+  private final CANSparkMax m_turningSparkMax;
+
+  private final RelativeEncoder m_drivingEncoder;
+  private final AbsoluteEncoder m_turningEncoder;
+
+  private final SparkPIDController m_drivingPIDController;
+  private final SparkPIDController m_turningPIDController;
+
+  // Hashes of everything configured below - a SPARK MAX whose saved fingerprint
+  // matches already has this configuration in flash
+  private static final int kDRIVING_FINGERPRINT = SparkFingerprint.of(1,
+      ModuleConstants.kDrivingEncoderPositionFactor, ModuleConstants.kDrivingEncoderVelocityFactor,
+      ModuleConstants.kDrivingP, ModuleConstants.kDrivingI, ModuleConstants.kDrivingD, ModuleConstants.kDrivingFF,
+      ModuleConstants.kDrivingMinOutput, ModuleConstants.kDrivingMaxOutput,
+      ModuleConstants.kDrivingMotorIdleMode.ordinal(), ModuleConstants.kDrivingMotorCurrentLimit);
+  private static final int kTURNING_FINGERPRINT = SparkFingerprint.of(2,
+      ModuleConstants.kTurningEncoderPositionFactor, ModuleConstants.kTurningEncoderVelocityFactor,
+      ModuleConstants.kTurningEncoderInverted ? 1 : 0,
+      ModuleConstants.kTurningEncoderPositionPIDMinInput, ModuleConstants.kTurningEncoderPositionPIDMaxInput,
+      ModuleConstants.kTurningP, ModuleConstants.kTurningI, ModuleConstants.kTurningD, ModuleConstants.kTurningFF,
+      ModuleConstants.kTurningMinOutput, ModuleConstants.kTurningMaxOutput,
+      ModuleConstants.kTurningMotorIdleMode.ordinal(), ModuleConstants.kTurningMotorCurrentLimit);
+
+  /**
+   * Configures the driving and turning motor, encoder, and PID controller.
+   * This configuration is specific to the REV MAXSwerve Module built with NEOs,
+   * SPARKS MAX, and a Through Bore Encoder.
+   * A SPARK MAX is only reset, configured and flashed when its saved
+   * configuration fingerprint differs from ModuleConstants.
+   */
+  public ModuleIOSparkMax(int drivingCANId, int turningCANId) {
+    m_drivingSparkMax = new CANSparkMax(drivingCANId, MotorType.kBrushless);
+    m_turningSparkMax = new CANSparkMax(turningCANId, MotorType.kBrushless);
+
+    // Setup encoders and PID controllers for the driving and turning SPARKS MAX.
+    m_drivingEncoder = m_drivingSparkMax.getEncoder();
+    m_turningEncoder = m_turningSparkMax.getAbsoluteEncoder(Type.kDutyCycle);
+    m_drivingPIDController = m_drivingSparkMax.getPIDController();
+    m_turningPIDController = m_turningSparkMax.getPIDController();
+
+    SparkFingerprint.configureIfChanged(m_drivingSparkMax, kDRIVING_FINGERPRINT, this::configureDriving);
+    SparkFingerprint.configureIfChanged(m_turningSparkMax, kTURNING_FINGERPRINT, this::configureTurning);
+
+    // Status frames - fast for the drive encoder and the absolute turning encoder,
+    // slowest for everything the code never reads. Not saved in flash, set every boot.
+    SparkStatusFrames.DRIVE.apply(m_drivingSparkMax);
+    SparkStatusFrames.TURN.apply(m_turningSparkMax);
+
+    m_drivingEncoder.setPosition(0);
+  }
+
+  private void configureDriving() {
+    // Factory reset, so we get the SPARK MAX to a known state before configuring
+    // it. This is useful in case a SPARK MAX is swapped out.
+    m_drivingSparkMax.restoreFactoryDefaults();
+    m_drivingPIDController.setFeedbackDevice(m_drivingEncoder);
+
+    // Apply position and velocity conversion factors for the driving encoder. The
+    // native units for position and velocity are rotations and RPM, respectively,
+    // but we want meters and meters per second to use with WPILib's swerve APIs.
+    m_drivingEncoder.setPositionConversionFactor(ModuleConstants.kDrivingEncoderPositionFactor);
+    m_drivingEncoder.setVelocityConversionFactor(ModuleConstants.kDrivingEncoderVelocityFactor);
+
+    // Set the PID gains for the driving motor. Note these are example gains, and you
+    // may need to tune them for your own robot!
+    m_drivingPIDController.setP(ModuleConstants.kDrivingP);
+    m_drivingPIDController.setI(ModuleConstants.kDrivingI);
+    m_drivingPIDController.setD(ModuleConstants.kDrivingD);
+    m_drivingPIDController.setFF(ModuleConstants.kDrivingFF);
+    m_drivingPIDController.setOutputRange(ModuleConstants.kDrivingMinOutput,
+        ModuleConstants.kDrivingMaxOutput);
+
+    m_drivingSparkMax.setIdleMode(ModuleConstants.kDrivingMotorIdleMode);
+    m_drivingSparkMax.setSmartCurrentLimit(ModuleConstants.kDrivingMotorCurrentLimit);
+  }
+
+  private void configureTurning() {
+    m_turningSparkMax.restoreFactoryDefaults();
+    m_turningPIDController.setFeedbackDevice(m_turningEncoder);
+
+    // Apply position and velocity conversion factors for the turning encoder. We
+    // want these in radians and radians per second to use with WPILib's swerve
+    // APIs.
+    m_turningEncoder.setPositionConversionFactor(ModuleConstants.kTurningEncoderPositionFactor);
+    m_turningEncoder.setVelocityConversionFactor(ModuleConstants.kTurningEncoderVelocityFactor);
+
+    // Invert the turning encoder, since the output shaft rotates in the opposite direction of
+    // the steering motor in the MAXSwerve Module.
+    m_turningEncoder.setInverted(ModuleConstants.kTurningEncoderInverted);
+
+    // Enable PID wrap around for the turning motor. This will allow the PID
+    // controller to go through 0 to get to the setpoint i.e. going from 350 degrees
+    // to 10 degrees will go through 0 rather than the other direction which is a
+    // longer route.
+    m_turningPIDController.setPositionPIDWrappingEnabled(true);
+    m_turningPIDController.setPositionPIDWrappingMinInput(ModuleConstants.kTurningEncoderPositionPIDMinInput);
+    m_turningPIDController.setPositionPIDWrappingMaxInput(ModuleConstants.kTurningEncoderPositionPIDMaxInput);
+
+    // Set the PID gains for the turning motor. Note these are example gains, and you
+    // may need to tune them for your own robot!
+    m_turningPIDController.setP(ModuleConstants.kTurningP);
+    m_turningPIDController.setI(ModuleConstants.kTurningI);
+    m_turningPIDController.setD(ModuleConstants.kTurningD);
+    m_turningPIDController.setFF(ModuleConstants.kTurningFF);
+    m_turningPIDController.setOutputRange(ModuleConstants.kTurningMinOutput,
+        ModuleConstants.kTurningMaxOutput);
+
+    m_turningSparkMax.setIdleMode(ModuleConstants.kTurningMotorIdleMode);
+    m_turningSparkMax.setSmartCurrentLimit(ModuleConstants.kTurningMotorCurrentLimit);
+  }
+
+  @Override
+  public void updateInputs(ModuleIOInputs inputs) {
+    inputs.drivePositionMeters = m_drivingEncoder.getPosition();
+    inputs.driveVelocityMetersPerSec = m_drivingEncoder.getVelocity();
+    inputs.turnPositionRad = m_turningEncoder.getPosition();
+  }
+
+  @Override
+  public void setDriveVelocity(double velocityMetersPerSec, double feedforwardVolts) {
+    m_drivingPIDController.setReference(velocityMetersPerSec, CANSparkMax.ControlType.kVelocity,
+        0, feedforwardVolts, SparkPIDController.ArbFFUnits.kVoltage);
+  }
+
+  @Override
+  public void setTurnPosition(double positionRad, double feedforwardVolts) {
+    m_turningPIDController.setReference(positionRad, CANSparkMax.ControlType.kPosition,
+        0, feedforwardVolts, SparkPIDController.ArbFFUnits.kVoltage);
+  }
+
+  @Override
+  public void resetDrivePosition() {
+    m_drivingEncoder.setPosition(0);
+  }
+}
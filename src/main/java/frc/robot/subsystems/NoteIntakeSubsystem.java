@@ -4,18 +4,17 @@
 
 package frc.robot.subsystems;
 
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.SparkLimitSwitch;
-import com.revrobotics.CANSparkBase.IdleMode;
-import com.revrobotics.CANSparkLowLevel.MotorType;
-
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 import frc.robot.Constants.IntakeConstants;
+import frc.robot.subsystems.IntakeIO.IntakeIOInputs;
+import frc.utils.DashboardPublisher;
+import frc.utils.DashboardPublisher.Signal;
+import frc.utils.LoopTiming;
+import frc.utils.TelemetryLog;
 
 /*
  * The NoteIntakeSubsystem (simple) takes a pre-loaded NOTE and feeds the
@@ -26,55 +25,82 @@ import frc.robot.Constants.IntakeConstants;
 
 public class NoteIntakeSubsystem extends SubsystemBase {
 
-  private CANSparkMax m_motorIntakeSpinner;
-  private CANSparkMax m_motorIntakeLift;
-  private SparkLimitSwitch m_isNoteLoaded;
-  private SparkLimitSwitch m_isForwardLimit;
-  private SparkLimitSwitch m_isReverseLimit;
+  private final IntakeIO m_io;
+  // limit switch snapshot - read once per loop in periodic
+  private final IntakeIOInputs m_inputs = new IntakeIOInputs();
+
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final int m_timingChannel = m_loopTiming.register("Subsystems/NoteIntakeSubsystem");
+
+  // logged as forward limit, reverse limit, note captured, spinner speed, lift speed
+  private final TelemetryLog m_log = TelemetryLog.getInstance();
+  private final int m_stateSignal = m_log.registerSignal("Intake/State", 5);
+  private final double[] m_stateSample = new double[5];
+  private double m_spinnerSpeed = 0.0;
+  private double m_intakeSpeed = 0.0;
+
+  // dashboard - only sent when a switch changes
+  private final DashboardPublisher m_dashboard = DashboardPublisher.getInstance();
+  private final Signal m_forwardLimitDisplay =
+      m_dashboard.add("Forward Limit Switch", DashboardPublisher.Type.BOOLEAN, 0.0);
+  private final Signal m_reverseLimitDisplay =
+      m_dashboard.add("Reverse Limit Switch", DashboardPublisher.Type.BOOLEAN, 0.0);
+  private final Signal m_noteCapturedDisplay =
+      m_dashboard.add("Note Captured", DashboardPublisher.Type.BOOLEAN, 0.0);
 
   /** Creates a new NoteIntakeSubsystem. */
   public NoteIntakeSubsystem() {
+    this(new IntakeIOSparkMax());
+  }
 
-    m_motorIntakeSpinner = new CANSparkMax(IntakeConstants.kINTAKE_SPIN_MOTOR_ID, MotorType.kBrushless);
-    m_motorIntakeLift = new CANSparkMax(IntakeConstants.kINTAKE_LIFT_MOTOR_ID, MotorType.kBrushless);
-    m_motorIntakeLift.restoreFactoryDefaults();
-    m_motorIntakeSpinner.restoreFactoryDefaults();
-    m_motorIntakeLift.setInverted(true);
-    m_motorIntakeSpinner.setIdleMode(IdleMode.kBrake);
-    m_motorIntakeLift.setIdleMode(IdleMode.kBrake);
-
-    m_isNoteLoaded = m_motorIntakeSpinner.getForwardLimitSwitch(SparkLimitSwitch.Type.kNormallyOpen);
-    m_isForwardLimit = m_motorIntakeLift.getForwardLimitSwitch(SparkLimitSwitch.Type.kNormallyOpen);
-    m_isReverseLimit = m_motorIntakeLift.getReverseLimitSwitch(SparkLimitSwitch.Type.kNormallyOpen);
-
+  /** Creates a new NoteIntakeSubsystem on the given hardware seam. */
+  public NoteIntakeSubsystem(IntakeIO io) {
+    m_io = io;
+    m_io.updateInputs(m_inputs);
   }
 
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
-    SmartDashboard.putBoolean("Forward Limit Switch", m_isForwardLimit.isPressed());
-    SmartDashboard.putBoolean("Reverse Limit Switch", m_isReverseLimit.isPressed());
-    SmartDashboard.putBoolean("Note Captured", m_isNoteLoaded.isPressed());
+    long startTime = System.nanoTime();
+    m_io.updateInputs(m_inputs);
+    boolean isForwardLimit = m_inputs.isForwardLimit;
+    boolean isReverseLimit = m_inputs.isReverseLimit;
+    boolean isNoteLoaded = m_inputs.isNoteLoaded;
+    m_forwardLimitDisplay.set(isForwardLimit);
+    m_reverseLimitDisplay.set(isReverseLimit);
+    m_noteCapturedDisplay.set(isNoteLoaded);
+
+    m_stateSample[0] = isForwardLimit ? 1.0 : 0.0;
+    m_stateSample[1] = isReverseLimit ? 1.0 : 0.0;
+    m_stateSample[2] = isNoteLoaded ? 1.0 : 0.0;
+    m_stateSample[3] = m_spinnerSpeed;
+    m_stateSample[4] = m_intakeSpeed;
+    m_log.record(m_stateSignal, m_stateSample);
+
+    m_loopTiming.recordSince(m_timingChannel, startTime);
   }
 
   private void setSpinnerSpeed(double spinSpeed) {
-    m_motorIntakeSpinner.set(spinSpeed);
+    m_io.setSpinnerSpeed(spinSpeed);
+    m_spinnerSpeed = spinSpeed;
   }
 
   private void setIntakeSpeed(double intakeSpeed) {
-    m_motorIntakeLift.set(intakeSpeed);
+    m_io.setLiftSpeed(intakeSpeed);
+    m_intakeSpeed = intakeSpeed;
   }
 
   public boolean isNoteIn(){
-    return m_isNoteLoaded.isPressed();
+    return m_inputs.isNoteLoaded;
   }
 
   private boolean isIntakeExtended() {
-    return m_isForwardLimit.isPressed();
+    return m_inputs.isForwardLimit;
   }
 
   private boolean isIntakeRetracted() {
-    return m_isReverseLimit.isPressed();
+    return m_inputs.isReverseLimit;
   }
 
   public Command cmdSpinnerEject() {
@@ -4,63 +4,171 @@
 
 package frc.robot.subsystems;
 
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ShooterConstants;
-
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
+import frc.robot.subsystems.ShooterIO.ShooterIOInputs;
+import frc.utils.LoopTiming;
+import frc.utils.TelemetryLog;
 
 /*
  * The NoteShooterSubsystem is a side-by-side flywheel launcher
  * Actuators - two motors (right and left) using TalonFX controllers
  * The motors themselves can therefore be either Falcon 500s (VEX) or Kraken (WCP)
  * This subsystem assumes that they are used as pairs - not two different makes combined
+ * While idle the flywheels pre-spin as soon as a NOTE is held, so a shot starts
+ * from kSHOOT_RPM_PRESPIN rather than from rest, and spin down again after
+ * kPRESPIN_TIMEOUT without a shot
  */
 
 public class NoteShooterSubsystem extends SubsystemBase {
   /** Creates a new ShooterSubsystem. */
 
-  private TalonFX m_motorShooterLeft;
-  private TalonFX m_motorShooterRight;
+  private final ShooterIO m_io;
+  private final ShooterIOInputs m_inputs = new ShooterIOInputs();
 
-  // constructor method - executed once at subsystem construction/instantiation
-  public NoteShooterSubsystem() {
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final int m_timingChannel = m_loopTiming.register("Subsystems/NoteShooterSubsystem");
+
+  private final TelemetryLog m_log = TelemetryLog.getInstance();
+  private final int m_shootSpeedSignal = m_log.registerSignal("Shooter/ShootSpeed", 1);
+  private final int m_velocitySignal = m_log.registerSignal("Shooter/Velocity", 3);
+  private final double[] m_velocitySample = new double[3];
+  private double m_shootSpeed = 0.0;
+  private double m_shootRpm = 0.0; // closed loop setpoint, 0 when open loop
+
+  public enum ShooterState { STOPPED, PRESPIN, LAUNCH, INTAKE }
+  private ShooterState m_state = ShooterState.STOPPED;
+  private final int m_stateSignal = m_log.registerSignal("Shooter/State", 1);
+  private boolean m_wasNoteIn = false;
+  private double m_noteInTime = 0.0;
 
-    m_motorShooterLeft = new TalonFX(ShooterConstants.kSHOOTER_LEFT_MOTOR_ID);
-    m_motorShooterRight = new TalonFX(ShooterConstants.kSHOOTER_RIGHT_MOTOR_ID);
+  // time from the launch trigger until both flywheels are at speed - the moment the note is fed
+  private final int m_timeToLaunchChannel = m_loopTiming.register("Shooter/TimeToLaunch", 500.0);
+  private double m_launchStartTime = 0.0;
+  private boolean m_isLaunchTimed = false;
 
-    m_motorShooterLeft.setInverted(!ShooterConstants.kIS_SHOOTER_INVERTED);
-    m_motorShooterRight.setInverted(ShooterConstants.kIS_SHOOTER_INVERTED);
+  // constructor method - executed once at subsystem construction/instantiation
+  public NoteShooterSubsystem() {
+    this(new ShooterIOTalonFX());
+  }
 
-    m_motorShooterLeft.setNeutralMode(NeutralModeValue.Coast);
-    m_motorShooterRight.setNeutralMode(NeutralModeValue.Coast);
-    
+  /** Creates a new NoteShooterSubsystem on the given hardware seam. */
+  public NoteShooterSubsystem(ShooterIO io) {
+    m_io = io;
   }
 
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
+    long startTime = System.nanoTime();
+    m_io.updateInputs(m_inputs);
+    m_log.record(m_shootSpeedSignal, m_shootSpeed);
+    m_velocitySample[0] = m_shootRpm;
+    m_velocitySample[1] = m_inputs.leftVelocityRps * 60.0;
+    m_velocitySample[2] = m_inputs.rightVelocityRps * 60.0;
+    m_log.record(m_velocitySignal, m_velocitySample);
+    m_log.record(m_stateSignal, m_state.ordinal());
+    m_loopTiming.recordSince(m_timingChannel, startTime);
   }
 
   private void setShootSpeed(double shootSpeed) {
-    m_motorShooterLeft.set(shootSpeed);
-    m_motorShooterRight.set(shootSpeed);
+    m_io.setSpeed(shootSpeed);
+    m_shootSpeed = shootSpeed;
+    m_shootRpm = 0.0;
   }
 
-  public Command cmdShooterIdle() {
-    return Commands.run(() -> setShootSpeed(ShooterConstants.kSHOOT_SPEED_IDLE), this);
+  private void setShootRpm(double shootRpm) {
+    m_io.setVelocity(shootRpm / 60.0);
+    m_shootRpm = shootRpm;
+  }
+
+  /**
+   * @return true when running closed loop and both flywheels are within
+   *         kSHOOT_RPM_TOLERANCE of the setpoint
+   */
+  public boolean isAtSpeed() {
+    return m_shootRpm > 0.0
+        && Math.abs(m_inputs.leftVelocityRps * 60.0 - m_shootRpm) <= ShooterConstants.kSHOOT_RPM_TOLERANCE
+        && Math.abs(m_inputs.rightVelocityRps * 60.0 - m_shootRpm) <= ShooterConstants.kSHOOT_RPM_TOLERANCE;
+  }
+
+  public ShooterState getState() {
+    return m_state;
+  }
+
+  /*
+   * Idle state machine - PRESPIN from the moment a NOTE is held until
+   * kPRESPIN_TIMEOUT has passed, STOPPED otherwise
+   */
+  private void runIdle(BooleanSupplier isNoteIn) {
+    boolean noteIn = isNoteIn.getAsBoolean();
+    double now = Timer.getFPGATimestamp();
+    if (noteIn && !m_wasNoteIn) {
+      m_noteInTime = now;
+    }
+    m_wasNoteIn = noteIn;
+
+    if (noteIn && now - m_noteInTime < ShooterConstants.kPRESPIN_TIMEOUT) {
+      m_state = ShooterState.PRESPIN;
+      setShootRpm(ShooterConstants.kSHOOT_RPM_PRESPIN);
+    } else {
+      m_state = ShooterState.STOPPED;
+      setShootSpeed(ShooterConstants.kSHOOT_SPEED_IDLE);
+    }
+  }
+
+  /*
+   * Default command - pre-spins while isNoteIn is true
+   * A note still held when the command restarts (e.g. after an interrupted
+   * shot) starts a new pre-spin timeout
+   */
+  public Command cmdShooterIdle(BooleanSupplier isNoteIn) {
+    return Commands.startRun(() -> m_wasNoteIn = false, () -> runIdle(isNoteIn), this);
+  }
+
+  private void startLaunch() {
+    m_state = ShooterState.LAUNCH;
+    m_launchStartTime = Timer.getFPGATimestamp();
+    m_isLaunchTimed = false;
+  }
+
+  private void runLaunch() {
+    setShootRpm(ShooterConstants.kSHOOT_RPM_LAUNCH);
+    if (!m_isLaunchTimed && isAtSpeed()) {
+      m_loopTiming.record(m_timeToLaunchChannel, (Timer.getFPGATimestamp() - m_launchStartTime) * 1000.0);
+      m_isLaunchTimed = true;
+    }
   }
 
   public Command cmdShooterLaunch() {
-    return Commands.runEnd(() -> setShootSpeed(ShooterConstants.kSHOOT_SPEED_LAUNCH),
-     () -> setShootSpeed(ShooterConstants.kSHOOT_SPEED_IDLE),
+    return Commands.startRun(this::startLaunch, this::runLaunch, this)
+      .finallyDo(() -> setShootSpeed(ShooterConstants.kSHOOT_SPEED_IDLE));
+  }
+
+  /*
+   * Launch speed without the time to launch metric - for spinning up ahead of a shot
+   * Ending leaves the shooter spinning - the next command (a launch) or the
+   * idle default command sets the speed, so the spin up is not thrown away
+   */
+  public Command cmdShooterPreSpin() {
+    return Commands.startEnd(() -> {
+        m_state = ShooterState.PRESPIN;
+        setShootRpm(ShooterConstants.kSHOOT_RPM_LAUNCH);
+      },
+      () -> {},
       this);
   }
 
   public Command cmdShooterIntake() {
-    return Commands.runEnd(() -> setShootSpeed(ShooterConstants.kSHOOT_SPEED_INTAKE),
+    return Commands.startEnd(() -> {
+        m_state = ShooterState.INTAKE;
+        setShootSpeed(ShooterConstants.kSHOOT_SPEED_INTAKE);
+      },
       () -> setShootSpeed(ShooterConstants.kSHOOT_SPEED_IDLE),
       this);
   }
@@ -0,0 +1,25 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/*
+ * Hardware seam for the NoteShooterSubsystem - left and right flywheel motors.
+ */
+public interface ShooterIO {
+
+  public static class ShooterIOInputs {
+    public double leftVelocityRps = 0.0;
+    public double rightVelocityRps = 0.0;
+  }
+
+  /** Reads the flywheel sensors into the inputs object. */
+  public default void updateInputs(ShooterIOInputs inputs) {}
+
+  /** Open loop output for both flywheels, -1 to 1. */
+  public default void setSpeed(double speed) {}
+
+  /** Closed loop velocity for both flywheels, motor rotations per second. */
+  public default void setVelocity(double velocityRps) {}
+}
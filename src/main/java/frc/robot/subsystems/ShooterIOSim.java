@@ -0,0 +1,63 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+
+import frc.robot.Constants.ShooterConstants;
+import frc.robot.Constants.SimConstants;
+
+/*
+ * ShooterIO physics model - each side is one Falcon 500 on a direct drive flywheel.
+ * Velocity control emulates the TalonFX Slot 0 kS/kV/kP loop once per update.
+ */
+public class ShooterIOSim implements ShooterIO {
+
+  private final FlywheelSim m_left = new FlywheelSim(DCMotor.getFalcon500(1), 1.0, SimConstants.kSHOOTER_MOI);
+  private final FlywheelSim m_right = new FlywheelSim(DCMotor.getFalcon500(1), 1.0, SimConstants.kSHOOTER_MOI);
+  private double m_lastTime = Timer.getFPGATimestamp();
+  private double m_velocitySetpoint = Double.NaN; // rotations per second, NaN when open loop
+
+  @Override
+  public synchronized void updateInputs(ShooterIOInputs inputs) {
+    double now = Timer.getFPGATimestamp();
+    double dt = Math.min(now - m_lastTime, SimConstants.kMAX_STEP);
+    m_lastTime = now;
+    if (!Double.isNaN(m_velocitySetpoint)) {
+      m_left.setInputVoltage(velocityVolts(m_left));
+      m_right.setInputVoltage(velocityVolts(m_right));
+    }
+    if (dt > 0.0) {
+      m_left.update(dt);
+      m_right.update(dt);
+    }
+    inputs.leftVelocityRps = m_left.getAngularVelocityRPM() / 60.0;
+    inputs.rightVelocityRps = m_right.getAngularVelocityRPM() / 60.0;
+  }
+
+  private double velocityVolts(FlywheelSim flywheel) {
+    double error = m_velocitySetpoint - flywheel.getAngularVelocityRPM() / 60.0;
+    double volts = Math.signum(m_velocitySetpoint) * ShooterConstants.kSHOOTER_S
+        + m_velocitySetpoint * ShooterConstants.kSHOOTER_V + error * ShooterConstants.kSHOOTER_P;
+    double battery = RobotController.getBatteryVoltage();
+    return Math.max(-battery, Math.min(battery, volts));
+  }
+
+  @Override
+  public synchronized void setVelocity(double velocityRps) {
+    m_velocitySetpoint = velocityRps;
+  }
+
+  @Override
+  public synchronized void setSpeed(double speed) {
+    m_velocitySetpoint = Double.NaN;
+    double volts = speed * RobotController.getBatteryVoltage();
+    m_left.setInputVoltage(volts);
+    m_right.setInputVoltage(volts);
+  }
+}
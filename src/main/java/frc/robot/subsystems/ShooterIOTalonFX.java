@@ -0,0 +1,72 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+
+import frc.robot.Constants.ShooterConstants;
+
+/*
+ * ShooterIO for the two TalonFX (Falcon 500 or Kraken) flywheel motors.
+ */
+public class ShooterIOTalonFX implements ShooterIO {
+
+  private TalonFX m_motorShooterLeft;
+  private TalonFX m_motorShooterRight;
+  // control request reused every loop, velocity runs on the TalonFX at 1 kHz
+  private final VelocityVoltage m_velocityRequest = new VelocityVoltage(0.0).withSlot(0);
+  private final StatusSignal<Double> m_leftVelocity;
+  private final StatusSignal<Double> m_rightVelocity;
+
+  public ShooterIOTalonFX() {
+    m_motorShooterLeft = new TalonFX(ShooterConstants.kSHOOTER_LEFT_MOTOR_ID);
+    m_motorShooterRight = new TalonFX(ShooterConstants.kSHOOTER_RIGHT_MOTOR_ID);
+
+    m_motorShooterLeft.setInverted(!ShooterConstants.kIS_SHOOTER_INVERTED);
+    m_motorShooterRight.setInverted(ShooterConstants.kIS_SHOOTER_INVERTED);
+
+    m_motorShooterLeft.setNeutralMode(NeutralModeValue.Coast);
+    m_motorShooterRight.setNeutralMode(NeutralModeValue.Coast);
+
+    Slot0Configs velocityGains = new Slot0Configs();
+    velocityGains.kS = ShooterConstants.kSHOOTER_S;
+    velocityGains.kV = ShooterConstants.kSHOOTER_V;
+    velocityGains.kP = ShooterConstants.kSHOOTER_P;
+    m_motorShooterLeft.getConfigurator().apply(velocityGains);
+    m_motorShooterRight.getConfigurator().apply(velocityGains);
+
+    // Status signals - the velocities at kVELOCITY_UPDATE_HZ, every signal the
+    // code does not use is turned off
+    m_leftVelocity = m_motorShooterLeft.getVelocity();
+    m_rightVelocity = m_motorShooterRight.getVelocity();
+    BaseStatusSignal.setUpdateFrequencyForAll(ShooterConstants.kVELOCITY_UPDATE_HZ, m_leftVelocity, m_rightVelocity);
+    m_motorShooterLeft.optimizeBusUtilization();
+    m_motorShooterRight.optimizeBusUtilization();
+  }
+
+  @Override
+  public void updateInputs(ShooterIOInputs inputs) {
+    BaseStatusSignal.refreshAll(m_leftVelocity, m_rightVelocity);
+    inputs.leftVelocityRps = m_leftVelocity.getValueAsDouble();
+    inputs.rightVelocityRps = m_rightVelocity.getValueAsDouble();
+  }
+
+  @Override
+  public void setSpeed(double speed) {
+    m_motorShooterLeft.set(speed);
+    m_motorShooterRight.set(speed);
+  }
+
+  @Override
+  public void setVelocity(double velocityRps) {
+    m_motorShooterLeft.setControl(m_velocityRequest.withVelocity(velocityRps));
+    m_motorShooterRight.setControl(m_velocityRequest);
+  }
+}
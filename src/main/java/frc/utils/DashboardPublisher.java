@@ -0,0 +1,152 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Change detecting, rate limited dashboard publishing.
+ *
+ * <p>Each dashboard value is a {@link Signal} holding its NetworkTables entry handle, so
+ * nothing is looked up by name in the loop.  A value is only sent when it differs from the
+ * last value sent, at most once per the signal's minimum period, and only while the signal's
+ * active condition holds - e.g. the autonomous selection tab only while disabled.  A value
+ * held back by the rate limit or the condition is sent by {@link #publishPeriodic()} once
+ * allowed, so the dashboard always ends up showing the latest value.
+ *
+ * <p>Main robot thread only.
+ */
+public final class DashboardPublisher {
+
+    public enum Type { BOOLEAN, NUMBER, STRING }
+
+    private static final String kSMART_DASHBOARD = "SmartDashboard";
+
+    private static DashboardPublisher m_instance;
+
+    private final NetworkTable m_smartDashboard = NetworkTableInstance.getDefault().getTable(kSMART_DASHBOARD);
+    private final List<Signal> m_signals = new ArrayList<>();
+
+    private DashboardPublisher() {}
+
+    public static synchronized DashboardPublisher getInstance() {
+        if (m_instance == null) {
+            m_instance = new DashboardPublisher();
+        }
+        return m_instance;
+    }
+
+    /**
+     * Adds a SmartDashboard value.
+     *
+     * @param key               SmartDashboard key, as for SmartDashboard.putBoolean etc.
+     * @param minPeriodSeconds  Shortest time between sends, 0 to send every change.
+     */
+    public Signal add(String key, Type type, double minPeriodSeconds) {
+        return add(m_smartDashboard.getTopic(key).getGenericEntry(), type, minPeriodSeconds);
+    }
+
+    /**
+     * Adds a value published through an existing entry, e.g. a Shuffleboard widget's.
+     *
+     * @param minPeriodSeconds  Shortest time between sends, 0 to send every change.
+     */
+    public Signal add(GenericEntry entry, Type type, double minPeriodSeconds) {
+        Signal signal = new Signal(entry, type, (long) (minPeriodSeconds * 1e6));
+        m_signals.add(signal);
+        return signal;
+    }
+
+    /**
+     * Sends the held back values that are now allowed. Call once per robot loop.
+     */
+    public void publishPeriodic() {
+        long now = RobotController.getFPGATime();
+        for (int ix = 0; ix < m_signals.size(); ix++) {
+            Signal signal = m_signals.get(ix);
+            if (signal.m_isPending) {
+                signal.send(now);
+            }
+        }
+    }
+
+    /** One dashboard value. */
+    public static final class Signal {
+        private final GenericEntry m_entry;
+        private final Type m_type;
+        private final long m_minPeriodMicros;
+        private BooleanSupplier m_activeCondition = () -> true;
+
+        private double m_value;
+        private String m_string = "";
+        private double m_sentValue;
+        private String m_sentString;
+        private boolean m_hasSent = false;
+        private boolean m_isPending = false;
+        private long m_lastSentMicros;
+
+        private Signal(GenericEntry entry, Type type, long minPeriodMicros) {
+            m_entry = entry;
+            m_type = type;
+            m_minPeriodMicros = minPeriodMicros;
+        }
+
+        /**
+         * Only sends while the condition is true, values set in between are held back.
+         */
+        public Signal onlyWhile(BooleanSupplier activeCondition) {
+            m_activeCondition = activeCondition;
+            return this;
+        }
+
+        public void set(boolean value) {
+            set(value ? 1.0 : 0.0);
+        }
+
+        public void set(double value) {
+            m_value = value;
+            m_isPending = !m_hasSent || value != m_sentValue;
+            if (m_isPending) {
+                send(RobotController.getFPGATime());
+            }
+        }
+
+        public void set(String value) {
+            m_string = value;
+            m_isPending = !m_hasSent || !value.equals(m_sentString);
+            if (m_isPending) {
+                send(RobotController.getFPGATime());
+            }
+        }
+
+        private void send(long now) {
+            if (m_hasSent && now - m_lastSentMicros < m_minPeriodMicros) {
+                return;
+            }
+            if (!m_activeCondition.getAsBoolean()) {
+                return;
+            }
+            switch (m_type) {
+                case BOOLEAN:
+                    m_entry.setBoolean(m_value != 0.0);
+                    break;
+                case NUMBER:
+                    m_entry.setDouble(m_value);
+                    break;
+                case STRING:
+                    m_entry.setString(m_string);
+                    break;
+            }
+            m_sentValue = m_value;
+            m_sentString = m_string;
+            m_hasSent = true;
+            m_isPending = false;
+            m_lastSentMicros = now;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package frc.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.util.struct.Struct;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Loop timing instrumentation for the scheduler loop.
+ *
+ * <p>Each timed item (robot loop, scheduler, subsystem periodic, command execute) gets a
+ * channel with a fixed size ring buffer of durations in milliseconds.  Recording is
+ * allocation free; about once a second every channel's p50/p99/max and overrun count are
+ * published to NetworkTables under "LoopTiming" as a compact struct.
+ *
+ * <p>Command execute times are taken from the scheduler's onCommandExecute callback as the
+ * time since the previous mark (end of the last subsystem periodic or previous command), so
+ * the first command of a loop also carries the button polling time.
+ */
+public final class LoopTiming {
+
+    public static final double kLOOP_BUDGET_MS = 20.0;
+
+    private static final int kSAMPLES = 256; // per channel, power of two
+    private static final int kMAX_CHANNELS = 48;
+    private static final int kPUBLISH_LOOPS = 50; // publish every 50 loops - 1 second
+    private static final String kTABLE = "LoopTiming";
+
+    private static LoopTiming m_instance;
+
+    private final String[] m_names = new String[kMAX_CHANNELS];
+    private final double[] m_overrunThreshold = new double[kMAX_CHANNELS];
+    private final double[][] m_samples = new double[kMAX_CHANNELS][kSAMPLES];
+    private final int[] m_sampleCount = new int[kMAX_CHANNELS];
+    private final int[] m_overruns = new int[kMAX_CHANNELS];
+    private final LoopStats[] m_stats = new LoopStats[kMAX_CHANNELS];
+    private final StructPublisher<LoopStats>[] m_publishers;
+    private int m_channelCount = 0;
+
+    private final double[] m_sortBuffer = new double[kSAMPLES];
+    private final NetworkTable m_table = NetworkTableInstance.getDefault().getTable(kTABLE);
+    private int m_loopsSincePublish = 0;
+
+    // keyed by command name - new instances of the same command (e.g. rebuilt autos)
+    // share a channel instead of registering a new one each time
+    private final Map<String, Integer> m_commandChannels = new HashMap<>();
+    private int m_otherCommandsChannel = -1;
+    private long m_lastMarkNanos = System.nanoTime();
+
+    @SuppressWarnings("unchecked")
+    private LoopTiming() {
+        m_publishers = new StructPublisher[kMAX_CHANNELS];
+    }
+
+    public static synchronized LoopTiming getInstance() {
+        if (m_instance == null) {
+            m_instance = new LoopTiming();
+        }
+        return m_instance;
+    }
+
+    /**
+     * Registers a timing channel whose overrun threshold is the 20 ms loop budget.
+     *
+     * @param name NetworkTables name of the channel, e.g. "Subsystems/DriveSubsystem".
+     * @return the channel id to record against.
+     */
+    public int register(String name) {
+        return register(name, kLOOP_BUDGET_MS);
+    }
+
+    /**
+     * Registers a timing channel.
+     *
+     * @param name                NetworkTables name of the channel.
+     * @param overrunThresholdMs  Samples above this many milliseconds count as overruns.
+     * @return the channel id to record against.
+     */
+    public synchronized int register(String name, double overrunThresholdMs) {
+        if (m_channelCount >= kMAX_CHANNELS) {
+            System.out.println("WARNING - LoopTiming channels full, not timing " + name);
+            return -1;
+        }
+        int channel = m_channelCount++;
+        m_names[channel] = name;
+        m_overrunThreshold[channel] = overrunThresholdMs;
+        m_stats[channel] = new LoopStats();
+        m_publishers[channel] = m_table.getStructTopic(name, LoopStats.struct).publish();
+        return channel;
+    }
+
+    /**
+     * Records the time since {@code startNanos} (from {@link System#nanoTime()}) on a channel.
+     *
+     * @return the current time in nanoseconds, usable as the start of the next measurement.
+     */
+    public long recordSince(int channel, long startNanos) {
+        long now = System.nanoTime();
+        record(channel, (now - startNanos) * 1e-6);
+        m_lastMarkNanos = now;
+        return now;
+    }
+
+    /**
+     * Records a duration in milliseconds on a channel.
+     */
+    public void record(int channel, double durationMs) {
+        if (channel < 0) {
+            return;
+        }
+        m_samples[channel][m_sampleCount[channel] & (kSAMPLES - 1)] = durationMs;
+        m_sampleCount[channel]++;
+        if (durationMs > m_overrunThreshold[channel]) {
+            m_overruns[channel]++;
+        }
+    }
+
+    /**
+     * Times each command's execute through the scheduler's execute callback.
+     */
+    public void bindScheduler(CommandScheduler scheduler) {
+        m_otherCommandsChannel = register("Commands/Other");
+        scheduler.onCommandExecute(this::recordCommandExecute);
+    }
+
+    private void recordCommandExecute(Command command) {
+        String name = command.getName();
+        Integer channel = m_commandChannels.get(name);
+        if (channel == null) {
+            // first execute of a command with this name - one time registration
+            channel = m_channelCount < kMAX_CHANNELS
+                ? register("Commands/" + name)
+                : m_otherCommandsChannel;
+            m_commandChannels.put(name, channel);
+        }
+        recordSince(channel, m_lastMarkNanos);
+    }
+
+    /**
+     * Publishes the statistics at a low rate. Call once per robot loop.
+     */
+    public void publishPeriodic() {
+        if (++m_loopsSincePublish < kPUBLISH_LOOPS) {
+            return;
+        }
+        m_loopsSincePublish = 0;
+
+        for (int channel = 0; channel < m_channelCount; channel++) {
+            int count = Math.min(m_sampleCount[channel], kSAMPLES);
+            LoopStats stats = m_stats[channel];
+            stats.samples = m_sampleCount[channel];
+            stats.overruns = m_overruns[channel];
+            if (count == 0) {
+                stats.p50 = 0.0;
+                stats.p99 = 0.0;
+                stats.max = 0.0;
+            } else {
+                System.arraycopy(m_samples[channel], 0, m_sortBuffer, 0, count);
+                Arrays.sort(m_sortBuffer, 0, count);
+                stats.p50 = m_sortBuffer[(count - 1) / 2];
+                stats.p99 = m_sortBuffer[(int) Math.ceil(0.99 * count) - 1];
+                stats.max = m_sortBuffer[count - 1];
+            }
+            m_publishers[channel].set(stats);
+        }
+    }
+
+    /**
+     * Timing summary of one channel over its last 256 samples (milliseconds).
+     */
+    public static class LoopStats {
+        public double p50;
+        public double p99;
+        public double max;
+        public int overruns;
+        public int samples;
+
+        public static final LoopStatsStruct struct = new LoopStatsStruct();
+    }
+
+    public static class LoopStatsStruct implements Struct<LoopStats> {
+        @Override
+        public Class<LoopStats> getTypeClass() {
+            return LoopStats.class;
+        }
+
+        @Override
+        public String getTypeString() {
+            return "struct:LoopStats";
+        }
+
+        @Override
+        public int getSize() {
+            return kSizeDouble * 3 + kSizeInt32 * 2;
+        }
+
+        @Override
+        public String getSchema() {
+            return "double p50;double p99;double max;int32 overruns;int32 samples";
+        }
+
+        @Override
+        public LoopStats unpack(ByteBuffer bb) {
+            LoopStats stats = new LoopStats();
+            stats.p50 = bb.getDouble();
+            stats.p99 = bb.getDouble();
+            stats.max = bb.getDouble();
+            stats.overruns = bb.getInt();
+            stats.samples = bb.getInt();
+            return stats;
+        }
+
+        @Override
+        public void pack(ByteBuffer bb, LoopStats value) {
+            bb.putDouble(value.p50);
+            bb.putDouble(value.p99);
+            bb.putDouble(value.max);
+            bb.putInt(value.overruns);
+            bb.putInt(value.samples);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package frc.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.SparkAnalogSensor;
+
+/**
+ * Configuration fingerprints for SPARK MAX controllers, so a boot only factory resets,
+ * reconfigures and burns flash on controllers whose saved configuration is out of date.
+ *
+ * <p>The fingerprint is a hash of every value the robot code configures.  It is stored in
+ * the analog sensor position conversion factor - a parameter nothing on the robot uses -
+ * and burned to flash with the rest of the configuration.  A fresh or swapped controller
+ * reads back the factory default 1.0 and never matches.
+ *
+ * <p>Every check and configuration is timed; {@link #report()} prints the totals once the
+ * controllers are constructed.
+ */
+public final class SparkFingerprint {
+
+    private static final int kFINGERPRINT_MASK = 0x7fffff; // exact in the parameter's float
+
+    private static int m_currentCount = 0;
+    private static int m_configuredCount = 0;
+    private static double m_checkMs = 0.0;
+    private static double m_configureMs = 0.0;
+
+    private SparkFingerprint() {}
+
+    /**
+     * Hashes the configured values - include a different tag per kind of controller.
+     *
+     * @return a fingerprint from 2 to 2^23, never the factory default 1
+     */
+    public static int of(double... values) {
+        return (Arrays.hashCode(values) & kFINGERPRINT_MASK) | 2;
+    }
+
+    /**
+     * Configures the SPARK MAX unless its saved fingerprint already matches.
+     *
+     * @param configure factory resets and configures the controller, called only on a mismatch
+     * @return true when the controller was reconfigured and its flash burned
+     */
+    public static synchronized boolean configureIfChanged(CANSparkMax spark, int fingerprint, Runnable configure) {
+        long startTime = System.nanoTime();
+        SparkAnalogSensor fingerprintParameter = spark.getAnalog(SparkAnalogSensor.Mode.kAbsolute);
+        boolean isCurrent = (int) fingerprintParameter.getPositionConversionFactor() == fingerprint;
+        double checkMs = (System.nanoTime() - startTime) * 1e-6;
+        m_checkMs += checkMs;
+        if (isCurrent) {
+            m_currentCount++;
+            return false;
+        }
+
+        startTime = System.nanoTime();
+        configure.run();
+        fingerprintParameter.setPositionConversionFactor(fingerprint);
+        spark.burnFlash();
+        double configureMs = (System.nanoTime() - startTime) * 1e-6;
+        m_configureMs += configureMs;
+        m_configuredCount++;
+        System.out.printf(Locale.ROOT, "SparkFingerprint - SPARK MAX %d configuration changed, rewritten in %.0f ms%n",
+                spark.getDeviceId(), configureMs);
+        return true;
+    }
+
+    /**
+     * Prints how many controllers were current and the time spent, with the estimated boot time
+     * saved by the skipped controllers when this boot configured at least one to measure by.
+     */
+    public static synchronized void report() {
+        String saved = m_configuredCount > 0
+                ? String.format(Locale.ROOT, ", about %.0f ms saved",
+                        m_currentCount * m_configureMs / m_configuredCount)
+                : "";
+        System.out.printf(Locale.ROOT,
+                "SparkFingerprint - %d SPARK MAX current (checked in %.0f ms), %d rewritten (%.0f ms)%s%n",
+                m_currentCount, m_checkMs, m_configuredCount, m_configureMs, saved);
+    }
+}
@@ -0,0 +1,64 @@
+package frc.utils;
+
+import com.revrobotics.CANSparkBase;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
+
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * SPARK MAX periodic status frame profiles.
+ *
+ * <p>Every SPARK MAX sends all of its status frames at the REV default rates whether or not
+ * the robot code reads them.  Each profile speeds up the frames carrying the signals the code
+ * reads and slows the rest down to the longest period, which lowers both sensor latency and
+ * bus load.  The onboard PID loops read their sensors directly, so slow frames do not affect
+ * closed loop control.
+ *
+ * <pre>
+ *   status 0  applied output, faults, limit switches   default  10 ms
+ *   status 1  velocity, temperature, voltage, current  default  20 ms
+ *   status 2  motor position                           default  20 ms
+ *   status 3  analog sensor                            default  50 ms
+ *   status 4  alternate encoder                        default  20 ms
+ *   status 5  duty cycle absolute position             default 200 ms
+ *   status 6  duty cycle absolute velocity             default 200 ms
+ * </pre>
+ *
+ * <p>Frame periods are not kept through a SPARK MAX reset, apply after every factory reset.
+ */
+public enum SparkStatusFrames {
+    // periods in ms of status 0 to 6, 0 for a frame the code never reads (sent at kSLOWEST)
+    /** Swerve drive motor - position at the odometry rate, velocity for the module state. */
+    DRIVE(20, 20, DriveConstants.kOdometryFramePeriodMs, 0, 0, 0, 0),
+    /** Swerve turning motor - absolute encoder position only, at the odometry rate. */
+    TURN(20, 500, 500, 0, 0, DriveConstants.kOdometryFramePeriodMs, 0),
+    /** Mechanism read through its limit switch inputs only. */
+    LIMIT_SWITCHES(10, 500, 500, 0, 0, 0, 0);
+
+    /** Longest period the SPARK MAX accepts, in ms - effectively off. */
+    public static final int kSLOWEST = 65535;
+
+    private static final PeriodicFrame[] kFRAMES = {
+        PeriodicFrame.kStatus0, PeriodicFrame.kStatus1, PeriodicFrame.kStatus2, PeriodicFrame.kStatus3,
+        PeriodicFrame.kStatus4, PeriodicFrame.kStatus5, PeriodicFrame.kStatus6
+    };
+
+    private final int[] m_periodsMs;
+
+    private SparkStatusFrames(int... periodsMs) {
+        m_periodsMs = periodsMs;
+    }
+
+    /**
+     * Sets every status frame period of the SPARK MAX to this profile.
+     */
+    public void apply(CANSparkBase spark) {
+        for (int ix = 0; ix < kFRAMES.length; ix++) {
+            spark.setPeriodicFramePeriod(kFRAMES[ix], getPeriodMs(ix));
+        }
+    }
+
+    public int getPeriodMs(int status) {
+        return m_periodsMs[status] == 0 ? kSLOWEST : m_periodsMs[status];
+    }
+}
@@ -0,0 +1,205 @@
+package frc.utils;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Module aware setpoint generation for the swerve drive.
+ *
+ * <p>Each loop the chassis setpoint moves from the last one towards the requested chassis
+ * speeds by the largest fraction that every module can follow: no module turns faster than
+ * the steering velocity limit and no module's wheel speed changes faster than the drive
+ * acceleration limit.  Module velocities are linear in the chassis speeds, so the fraction
+ * is found by bisection on the straight line between the two chassis setpoints.
+ *
+ * <p>A module reversing its direction slows through zero rather than steering around, and a
+ * module with (nearly) no speed steers towards where it is about to drive while the others
+ * wait, so the wheels never scrub against each other.  Module speeds are cosine scaled to the
+ * angle the module is actually given.
+ *
+ * <p>Allocation free and free of hardware so the same code can be benchmarked off the robot.
+ */
+public class SwerveSetpointGenerator {
+
+    private static final int kBISECTION_STEPS = 8;
+    // below this module speed the steering angle is free, m/s
+    private static final double kSTOPPED_SPEED = 0.02;
+    // a gap longer than this between calls starts over from the measured state, s
+    private static final double kMAX_ELAPSED = 0.1;
+    // step time of the first call after a reset, s
+    private static final double kFIRST_ELAPSED = 0.02;
+
+    private final double[] m_moduleX;
+    private final double[] m_moduleY;
+    private final double m_maxSpeed;
+    private final double m_maxSteerVelocity;
+    private final double m_maxDriveAcceleration;
+
+    // last chassis setpoint, robot relative
+    private double m_vx = 0.0;
+    private double m_vy = 0.0;
+    private double m_omega = 0.0;
+    // last module setpoints - signed speed along the module angle
+    private final double[] m_speeds;
+    private final double[] m_angles;
+    private double m_prevTime = Double.NaN;
+
+    // requested chassis speeds after desaturation, for the current step
+    private double m_targetVx;
+    private double m_targetVy;
+    private double m_targetOmega;
+
+    /**
+     * @param moduleX              Module x locations relative to the robot center in meters.
+     * @param moduleY              Module y locations relative to the robot center in meters.
+     * @param maxSpeed             Maximum module speed in meters per second.
+     * @param maxSteerVelocity     Maximum module steering velocity in radians per second.
+     * @param maxDriveAcceleration Maximum module speed change in meters per second squared.
+     */
+    public SwerveSetpointGenerator(double[] moduleX, double[] moduleY, double maxSpeed,
+            double maxSteerVelocity, double maxDriveAcceleration) {
+        m_moduleX = moduleX;
+        m_moduleY = moduleY;
+        m_maxSpeed = maxSpeed;
+        m_maxSteerVelocity = maxSteerVelocity;
+        m_maxDriveAcceleration = maxDriveAcceleration;
+        m_speeds = new double[moduleX.length];
+        m_angles = new double[moduleX.length];
+    }
+
+    /**
+     * Starts over from the measured state, e.g. after other code drove the modules.
+     *
+     * @param vx     Measured robot relative speed in the x direction in meters per second.
+     * @param vy     Measured robot relative speed in the y direction in meters per second.
+     * @param omega  Measured angular rate in radians per second.
+     * @param speeds Measured module speeds in meters per second.
+     * @param angles Measured chassis relative module angles in radians.
+     */
+    public void reset(double vx, double vy, double omega, double[] speeds, double[] angles) {
+        m_vx = vx;
+        m_vy = vy;
+        m_omega = omega;
+        System.arraycopy(speeds, 0, m_speeds, 0, m_speeds.length);
+        System.arraycopy(angles, 0, m_angles, 0, m_angles.length);
+        m_prevTime = Double.NaN;
+    }
+
+    /**
+     * True when the generator has to be {@link #reset} before the next {@link #calculate} -
+     * it never ran, or not for longer than a few loops.
+     */
+    public boolean needsReset(double time) {
+        return !(time - m_prevTime <= kMAX_ELAPSED);
+    }
+
+    /**
+     * Steps the setpoint towards the requested robot relative chassis speeds.
+     *
+     * @param vx     Requested speed in the x direction (forward) in meters per second.
+     * @param vy     Requested speed in the y direction (left) in meters per second.
+     * @param omega  Requested angular rate in radians per second (counter clockwise positive).
+     * @param time   Current time in seconds.
+     * @param speeds Output module speeds in meters per second.
+     * @param angles Output chassis relative module angles in radians.
+     */
+    public void calculate(double vx, double vy, double omega, double time, double[] speeds, double[] angles) {
+        double elapsed = Double.isNaN(m_prevTime)
+                ? kFIRST_ELAPSED : MathUtil.clamp(time - m_prevTime, 0.0, kMAX_ELAPSED);
+        m_prevTime = time;
+        double maxSteer = m_maxSteerVelocity * elapsed;
+        double maxSpeedChange = m_maxDriveAcceleration * elapsed;
+
+        // desaturate - scaling the chassis speeds scales every module speed evenly
+        double fastest = 0.0;
+        for (int ix = 0; ix < m_moduleX.length; ix++) {
+            fastest = Math.max(fastest, Math.hypot(vx - omega * m_moduleY[ix], vy + omega * m_moduleX[ix]));
+        }
+        double scale = fastest > m_maxSpeed ? m_maxSpeed / fastest : 1.0;
+        m_targetVx = vx * scale;
+        m_targetVy = vy * scale;
+        m_targetOmega = omega * scale;
+
+        // largest step along the line to the request that every module can follow
+        double fraction = 1.0;
+        if (!isFeasible(1.0, maxSteer, maxSpeedChange)) {
+            double feasible = 0.0;
+            double infeasible = 1.0;
+            for (int step = 0; step < kBISECTION_STEPS; step++) {
+                double mid = (feasible + infeasible) * 0.5;
+                if (isFeasible(mid, maxSteer, maxSpeedChange)) {
+                    feasible = mid;
+                } else {
+                    infeasible = mid;
+                }
+            }
+            fraction = feasible;
+        }
+
+        m_vx += (m_targetVx - m_vx) * fraction;
+        m_vy += (m_targetVy - m_vy) * fraction;
+        m_omega += (m_targetOmega - m_omega) * fraction;
+
+        for (int ix = 0; ix < m_moduleX.length; ix++) {
+            double moduleVx = m_vx - m_omega * m_moduleY[ix];
+            double moduleVy = m_vy + m_omega * m_moduleX[ix];
+            double moduleSpeed = Math.hypot(moduleVx, moduleVy);
+            double direction;
+            if (moduleSpeed >= kSTOPPED_SPEED) {
+                direction = Math.atan2(moduleVy, moduleVx);
+            } else {
+                // (nearly) stopped - steer towards where the request will drive the module
+                double targetVx = m_targetVx - m_targetOmega * m_moduleY[ix];
+                double targetVy = m_targetVy + m_targetOmega * m_moduleX[ix];
+                direction = Math.hypot(targetVx, targetVy) >= kSTOPPED_SPEED
+                        ? Math.atan2(targetVy, targetVx) : m_angles[ix];
+            }
+
+            // steering limit - also covers a state the last step could not reach (after a reset)
+            double angle = m_angles[ix] + MathUtil.clamp(steerError(direction, m_angles[ix]), -maxSteer, maxSteer);
+            // module velocity projected onto the angle it is given (cosine scaling)
+            double speed = moduleVx * Math.cos(angle) + moduleVy * Math.sin(angle);
+            speed = m_speeds[ix] + MathUtil.clamp(speed - m_speeds[ix], -maxSpeedChange, maxSpeedChange);
+
+            m_angles[ix] = MathUtil.angleModulus(angle);
+            m_speeds[ix] = speed;
+            speeds[ix] = speed;
+            angles[ix] = m_angles[ix];
+        }
+    }
+
+    /* True when every module can follow the chassis setpoint the given fraction of the way to the request */
+    private boolean isFeasible(double fraction, double maxSteer, double maxSpeedChange) {
+        double vx = m_vx + (m_targetVx - m_vx) * fraction;
+        double vy = m_vy + (m_targetVy - m_vy) * fraction;
+        double omega = m_omega + (m_targetOmega - m_omega) * fraction;
+        for (int ix = 0; ix < m_moduleX.length; ix++) {
+            double moduleVx = vx - omega * m_moduleY[ix];
+            double moduleVy = vy + omega * m_moduleX[ix];
+            double moduleSpeed = Math.hypot(moduleVx, moduleVy);
+            if (moduleSpeed < kSTOPPED_SPEED) {
+                continue;
+            }
+            double direction = Math.atan2(moduleVy, moduleVx);
+            if (Math.abs(steerError(direction, m_angles[ix])) > maxSteer) {
+                return false;
+            }
+            // signed speed along the module's current angle - a reversal has to slow through zero
+            double speed = moduleSpeed * Math.cos(direction - m_angles[ix]);
+            if (Math.abs(speed - m_speeds[ix]) > maxSpeedChange) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Steering needed to line the module up with the direction, either way round (-PI/2 to PI/2) */
+    private static double steerError(double direction, double angle) {
+        double error = MathUtil.angleModulus(direction - angle);
+        if (error > Math.PI / 2) {
+            error -= Math.PI;
+        } else if (error < -Math.PI / 2) {
+            error += Math.PI;
+        }
+        return error;
+    }
+}
@@ -65,6 +65,74 @@ public class SwerveUtils {
         return difference > Math.PI? (2 * Math.PI) - difference : difference;
     }
 
+    /**
+     * Converts robot relative chassis speeds to module speeds and angles (inverse kinematics)
+     * without allocating.  Equivalent to {@code SwerveDriveKinematics.toSwerveModuleStates}.
+     * When all chassis speeds are zero the module angles are left unchanged so the wheels hold their heading.
+     * @param _vx Robot relative speed in the x direction (forward) in meters per second.
+     * @param _vy Robot relative speed in the y direction (left) in meters per second.
+     * @param _omega Angular rate of the robot in radians per second (counter clockwise positive).
+     * @param _moduleX Module x locations relative to the robot center in meters.
+     * @param _moduleY Module y locations relative to the robot center in meters.
+     * @param _speeds Output module speeds in meters per second.
+     * @param _angles Output module angles in radians.
+     */
+    public static void ToModuleStates(double _vx, double _vy, double _omega, double[] _moduleX, double[] _moduleY,
+            double[] _speeds, double[] _angles) {
+        boolean isStopped = _vx == 0.0 && _vy == 0.0 && _omega == 0.0;
+        for (int ix = 0; ix < _speeds.length; ix++) {
+            double moduleVx = _vx - _omega * _moduleY[ix];
+            double moduleVy = _vy + _omega * _moduleX[ix];
+            _speeds[ix] = Math.hypot(moduleVx, moduleVy);
+            if (!isStopped) {
+                _angles[ix] = Math.atan2(moduleVy, moduleVx);
+            }
+        }
+    }
+
+    /**
+     * Discretizes chassis speeds without allocating.  Equivalent to {@code ChassisSpeeds.discretize}:
+     * the speeds are held for one loop, so driving straight at the requested x and y speeds while
+     * rotating would arc off to the side.  The returned translation drives the arc (pose exponential)
+     * that ends where translating and rotating at the requested speeds for the period would end.
+     * @param _vx Robot relative speed in the x direction in meters per second.
+     * @param _vy Robot relative speed in the y direction in meters per second.
+     * @param _omega Angular rate of the robot in radians per second.
+     * @param _dt The period the speeds are held for in seconds.
+     * @param _speeds Output discretized x and y speeds in meters per second (the angular rate is unchanged).
+     */
+    public static void Discretize(double _vx, double _vy, double _omega, double _dt, double[] _speeds) {
+        // twist of the pose (vx dt, vy dt, omega dt) - Pose2d.log
+        double halfDtheta = _omega * _dt / 2;
+        double cosMinusOne = Math.cos(_omega * _dt) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1e-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - (_omega * _dt) * (_omega * _dt) / 12.0;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(_omega * _dt)) / cosMinusOne;
+        }
+        _speeds[0] = _vx * halfThetaByTanOfHalfDtheta + _vy * halfDtheta;
+        _speeds[1] = _vy * halfThetaByTanOfHalfDtheta - _vx * halfDtheta;
+    }
+
+    /**
+     * Scales all module speeds down evenly so that none exceeds the maximum, without allocating.
+     * Equivalent to {@code SwerveDriveKinematics.desaturateWheelSpeeds}.
+     * @param _speeds Module speeds in meters per second, updated in place.
+     * @param _maxSpeed The maximum attainable module speed in meters per second.
+     */
+    public static void DesaturateWheelSpeeds(double[] _speeds, double _maxSpeed) {
+        double realMaxSpeed = 0.0;
+        for (double speed : _speeds) {
+            realMaxSpeed = Math.max(realMaxSpeed, Math.abs(speed));
+        }
+        if (realMaxSpeed > _maxSpeed) {
+            for (int ix = 0; ix < _speeds.length; ix++) {
+                _speeds[ix] = _speeds[ix] / realMaxSpeed * _maxSpeed;
+            }
+        }
+    }
+
     /**
      * Wraps an angle until it lies within the range from 0 to 2*PI (exclusive).
      * @param _angle The angle (in radians) to wrap.  Can be positive or negative and can lie multiple wraps outside the output range.
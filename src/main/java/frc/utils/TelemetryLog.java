@@ -0,0 +1,257 @@
+package frc.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * On-robot binary telemetry log.
+ *
+ * <p>Records go into a preallocated off-heap ring buffer; a background thread flushes the
+ * buffer in batches to {@code logs/telemetry_<time>.bin} under the operating directory
+ * (/home/lvuser on the RIO).  Recording a signal costs the main loop one copy of its
+ * values into the ring - no allocation, no file I/O.
+ *
+ * <p>The RIO's flash also holds the deploy folder and the robot jar, so at start the oldest
+ * logs are deleted down to {@link #kMAX_LOG_FILES} files and {@link #kMAX_LOG_BYTES} in total,
+ * and writing stops while less than {@link #kMIN_FREE_BYTES} are free.
+ *
+ * <p>File format (little endian), a stream of records:
+ * <pre>
+ *   header  : "FRCTLM1\n"
+ *   define  : byte 'D', short id, short width, short nameLength, byte[nameLength] UTF-8 name
+ *   sample  : byte 'S', short id, long FPGA timestamp (us), double[width] values
+ * </pre>
+ *
+ * <p>{@link #record} and {@link #startLoop} are single producer and must be called from
+ * the main robot thread.  When the flush thread falls behind, samples are dropped and counted.
+ */
+public final class TelemetryLog {
+
+    public static final byte[] kHEADER = "FRCTLM1\n".getBytes(StandardCharsets.US_ASCII);
+    public static final byte kRECORD_DEFINE = 'D';
+    public static final byte kRECORD_SAMPLE = 'S';
+    public static final int kMAX_WIDTH = 64;
+    public static final int kMAX_SIGNALS = 256;
+
+    private static final int kRING_CAPACITY = 1 << 20; // 1 MiB, about 10 s of full rate logging
+    private static final long kFLUSH_PERIOD_MS = 100;
+    private static final String kLOG_FOLDER = "logs";
+    private static final String kLOG_PREFIX = "telemetry_";
+    private static final String kLOG_EXTENSION = ".bin";
+    // retention of earlier logs, including the one being started
+    private static final int kMAX_LOG_FILES = 20;
+    private static final long kMAX_LOG_BYTES = 200L << 20; // about 100 minutes of full rate logging
+    private static final long kMIN_FREE_BYTES = 100L << 20;
+
+    private static TelemetryLog m_instance;
+
+    private final ByteBuffer m_ring = ByteBuffer.allocateDirect(kRING_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer m_record = ByteBuffer.allocateDirect(1 + 2 + 8 + 8 * kMAX_WIDTH)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    private volatile long m_writePos = 0; // total bytes written, producer only
+    private volatile long m_readPos = 0;  // total bytes flushed, flush thread only
+
+    private final int[] m_widths = new int[kMAX_SIGNALS];
+    private int m_signalCount = 0;
+    private long m_timestampMicros = 0;
+    private long m_droppedRecords = 0;
+
+    private Thread m_flushThread;
+    private File m_logFile;
+
+    private TelemetryLog() {}
+
+    public static synchronized TelemetryLog getInstance() {
+        if (m_instance == null) {
+            m_instance = new TelemetryLog();
+        }
+        return m_instance;
+    }
+
+    /**
+     * Starts the background flush thread.  Only the first call starts it.
+     */
+    public synchronized void start() {
+        if (m_flushThread != null) {
+            return;
+        }
+        File logFolder = new File(Filesystem.getOperatingDirectory(), kLOG_FOLDER);
+        logFolder.mkdirs();
+        deleteOldLogs(logFolder);
+        m_logFile = new File(logFolder, kLOG_PREFIX + System.currentTimeMillis() + kLOG_EXTENSION);
+
+        m_flushThread = new Thread(this::flushLoop, "TelemetryLog");
+        m_flushThread.setDaemon(true);
+        m_flushThread.setPriority(Thread.MIN_PRIORITY);
+        m_flushThread.start();
+    }
+
+    /*
+     * Deletes the oldest logs until, with the one about to start, at most kMAX_LOG_FILES
+     * remain and the remaining ones take at most kMAX_LOG_BYTES
+     */
+    private static void deleteOldLogs(File logFolder) {
+        File[] logs = logFolder.listFiles(
+            (dir, name) -> name.startsWith(kLOG_PREFIX) && name.endsWith(kLOG_EXTENSION));
+        if (logs == null) {
+            return;
+        }
+        Arrays.sort(logs, Comparator.comparingLong(File::lastModified).reversed());
+        long totalBytes = 0;
+        for (int ix = 0; ix < logs.length; ix++) {
+            totalBytes += logs[ix].length();
+            if (ix + 1 >= kMAX_LOG_FILES || totalBytes > kMAX_LOG_BYTES) {
+                if (!logs[ix].delete()) {
+                    DriverStation.reportWarning("TelemetryLog - unable to delete " + logs[ix].getName(), false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a signal and writes its definition to the log.
+     *
+     * @param name  Signal name, e.g. "Chassis/TargetStates".
+     * @param width Number of doubles recorded per sample.
+     * @return the signal id to record against.
+     */
+    public synchronized int registerSignal(String name, int width) {
+        if (width < 1 || width > kMAX_WIDTH) {
+            throw new IllegalArgumentException("TelemetryLog signal width " + width + " for " + name);
+        }
+        if (m_signalCount >= kMAX_SIGNALS) {
+            throw new IllegalStateException("TelemetryLog signals full, cannot register " + name);
+        }
+        int id = m_signalCount++;
+        m_widths[id] = width;
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer define = ByteBuffer.allocate(1 + 2 + 2 + 2 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        define.put(kRECORD_DEFINE).putShort((short) id).putShort((short) width)
+            .putShort((short) nameBytes.length).put(nameBytes);
+        define.flip();
+        append(define);
+        return id;
+    }
+
+    /**
+     * Latches the FPGA time used for every sample recorded in this loop.
+     * Call once at the start of each robot loop.
+     */
+    public void startLoop() {
+        m_timestampMicros = RobotController.getFPGATime();
+    }
+
+    public long getTimestampMicros() {
+        return m_timestampMicros;
+    }
+
+    public void record(int id, double value) {
+        beginSample(id);
+        m_record.putDouble(value);
+        endSample();
+    }
+
+    public void record(int id, boolean value) {
+        record(id, value ? 1.0 : 0.0);
+    }
+
+    /**
+     * Records the first {@code width} (as registered) values of the array.
+     */
+    public void record(int id, double[] values) {
+        beginSample(id);
+        for (int ix = 0; ix < m_widths[id]; ix++) {
+            m_record.putDouble(values[ix]);
+        }
+        endSample();
+    }
+
+    private void beginSample(int id) {
+        m_record.clear();
+        m_record.put(kRECORD_SAMPLE).putShort((short) id).putLong(m_timestampMicros);
+    }
+
+    private void endSample() {
+        m_record.flip();
+        append(m_record);
+    }
+
+    /*
+     * Copies a complete record into the ring in at most two bulk puts.
+     * Drops the record rather than overwrite data the flush thread has not written yet.
+     */
+    private void append(ByteBuffer record) {
+        int length = record.remaining();
+        long writePos = m_writePos;
+        if (writePos + length - m_readPos > kRING_CAPACITY) {
+            m_droppedRecords++;
+            return;
+        }
+        int index = (int) (writePos % kRING_CAPACITY);
+        int firstPart = Math.min(length, kRING_CAPACITY - index);
+        m_ring.put(index, record, record.position(), firstPart);
+        if (firstPart < length) {
+            m_ring.put(0, record, record.position() + firstPart, length - firstPart);
+        }
+        m_writePos = writePos + length;
+    }
+
+    public long getDroppedRecords() {
+        return m_droppedRecords;
+    }
+
+    private boolean hasFreeSpace() {
+        if (m_logFile.getParentFile().getUsableSpace() >= kMIN_FREE_BYTES) {
+            return true;
+        }
+        DriverStation.reportWarning("TelemetryLog - less than " + (kMIN_FREE_BYTES >> 20)
+            + " MB free, logging stopped", false);
+        return false;
+    }
+
+    /*
+     * Writes the ring to the log file until interrupted or the flash runs low.  Once
+     * stopped the ring fills up and further records are dropped (and counted).
+     */
+    private void flushLoop() {
+        ByteBuffer ring = m_ring.duplicate();
+        if (!hasFreeSpace()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(m_logFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(kHEADER));
+            while (!Thread.currentThread().isInterrupted() && hasFreeSpace()) {
+                long writePos = m_writePos;
+                long readPos = m_readPos;
+                while (readPos < writePos) {
+                    int index = (int) (readPos % kRING_CAPACITY);
+                    int length = (int) Math.min(writePos - readPos, kRING_CAPACITY - index);
+                    ring.limit(index + length).position(index);
+                    while (ring.hasRemaining()) {
+                        channel.write(ring);
+                    }
+                    readPos += length;
+                }
+                m_readPos = readPos;
+                Thread.sleep(kFLUSH_PERIOD_MS);
+            }
+        } catch (IOException e) {
+            DriverStation.reportError("TelemetryLog - write failed: " + e.getMessage(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
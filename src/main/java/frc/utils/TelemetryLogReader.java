@@ -0,0 +1,121 @@
+package frc.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a {@link TelemetryLog} file back into memory for offline tools such as replay.
+ *
+ * <p>Samples are grouped into frames by timestamp - every sample recorded in one robot
+ * loop carries the loop's latched FPGA time, so a frame is one loop.  A truncated last
+ * record (robot powered off mid write) ends the log.
+ */
+public final class TelemetryLogReader {
+
+    /** One robot loop of samples, indexed by signal id; null where a signal was not recorded. */
+    public static final class Frame {
+        public final long timestampMicros;
+        public final double[][] values;
+
+        private Frame(long timestampMicros) {
+            this.timestampMicros = timestampMicros;
+            this.values = new double[TelemetryLog.kMAX_SIGNALS][];
+        }
+    }
+
+    private final String[] m_names = new String[TelemetryLog.kMAX_SIGNALS];
+    private final int[] m_widths = new int[TelemetryLog.kMAX_SIGNALS];
+    private final List<Frame> m_frames = new ArrayList<>();
+
+    private TelemetryLogReader() {}
+
+    public static TelemetryLogReader read(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] header = new byte[TelemetryLog.kHEADER.length];
+        if (buffer.remaining() < header.length) {
+            throw new IOException(file + " is not a telemetry log");
+        }
+        buffer.get(header);
+        if (!Arrays.equals(header, TelemetryLog.kHEADER)) {
+            throw new IOException(file + " is not a telemetry log");
+        }
+
+        TelemetryLogReader reader = new TelemetryLogReader();
+        try {
+            while (buffer.hasRemaining()) {
+                reader.readRecord(buffer);
+            }
+        } catch (BufferUnderflowException e) {
+            // truncated last record
+        }
+        return reader;
+    }
+
+    private void readRecord(ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        int id = buffer.getShort();
+        if (id < 0 || id >= TelemetryLog.kMAX_SIGNALS) {
+            throw new IOException("bad signal id " + id + " at offset " + buffer.position());
+        }
+        if (type == TelemetryLog.kRECORD_DEFINE) {
+            int width = buffer.getShort();
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            m_names[id] = new String(name, StandardCharsets.UTF_8);
+            m_widths[id] = width;
+        } else if (type == TelemetryLog.kRECORD_SAMPLE) {
+            if (m_names[id] == null) {
+                throw new IOException("sample for undefined signal " + id + " at offset " + buffer.position());
+            }
+            long timestamp = buffer.getLong();
+            double[] values = new double[m_widths[id]];
+            for (int ix = 0; ix < values.length; ix++) {
+                values[ix] = buffer.getDouble();
+            }
+            Frame frame = m_frames.isEmpty() ? null : m_frames.get(m_frames.size() - 1);
+            if (frame == null || frame.timestampMicros != timestamp) {
+                frame = new Frame(timestamp);
+                m_frames.add(frame);
+            }
+            frame.values[id] = values;
+        } else {
+            throw new IOException("bad record type " + type + " at offset " + buffer.position());
+        }
+    }
+
+    /**
+     * @return the signal id, or -1 when the log has no signal of that name.
+     */
+    public int getSignalId(String name) {
+        for (int id = 0; id < m_names.length; id++) {
+            if (name.equals(m_names[id])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the signal name, or null for an unused id.
+     */
+    public String getSignalName(int id) {
+        return m_names[id];
+    }
+
+    public int getSignalWidth(int id) {
+        return m_widths[id];
+    }
+
+    public List<Frame> getFrames() {
+        return Collections.unmodifiableList(m_frames);
+    }
+}
@@ -0,0 +1,130 @@
+package frc.robot.libraries;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.libraries.AutoPatternSet.Pattern;
+
+class AutoPatternSetTest {
+
+  private static AutoPatternSet parse(String... lines) {
+    return AutoPatternSet.parse("test.txt", List.of(lines));
+  }
+
+  /* Parses the lines, expecting the error at the line with the message part */
+  private static void assertParseError(int line, String message, String... lines) {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(lines));
+    assertTrue(e.getMessage().startsWith("test.txt:" + line + " - "), e.getMessage());
+    assertTrue(e.getMessage().contains(message), e.getMessage());
+  }
+
+  @Test
+  void parsesGroups() {
+    AutoPatternSet patterns = parse(
+        "# comment",
+        "step drive1 D",
+        "step shoot S 0 1 !2",
+        "step spin P",
+        "step wait W sw",
+        "",
+        "pattern two wait drive1+shoot drive1/spin  # trailing comment");
+
+    assertEquals(1, patterns.getPatternCount());
+    Pattern pattern = patterns.getPattern(0);
+    assertEquals("two", pattern.getName());
+    assertEquals(5, pattern.getStepCount());
+    assertEquals(3, pattern.getGroupCount());
+    assertEquals(AutoPatternSet.kGROUP_SINGLE, pattern.getGroupType(0));
+    assertEquals(AutoPatternSet.kGROUP_PARALLEL, pattern.getGroupType(1));
+    assertEquals(AutoPatternSet.kGROUP_DEADLINE, pattern.getGroupType(2));
+    assertEquals(1, pattern.getGroupStart(1));
+    assertEquals(3, pattern.getGroupEnd(1));
+    assertEquals("drive1", pattern.getStep(pattern.getGroupStart(2)).getName());
+    assertTrue(pattern.getStep(0).isWaitFromSwitch());
+    assertEquals("1 & !2", pattern.getStep(2).getSwitchText());
+  }
+
+  @Test
+  void rejectsDuplicateStep() {
+    assertParseError(2, "duplicate step a",
+        "step a W 1",
+        "step a W 2");
+  }
+
+  @Test
+  void rejectsMixedGroup() {
+    assertParseError(4, "mixes + and /",
+        "step a D",
+        "step b W 1",
+        "step c S",
+        "pattern p a+b/c");
+  }
+
+  @Test
+  void rejectsTwoPathSteps() {
+    assertParseError(3, "more than one path step",
+        "step a D",
+        "step b I",
+        "pattern p a+b");
+    assertParseError(3, "more than one path step",
+        "step a D",
+        "step b I",
+        "pattern p a/b");
+  }
+
+  @Test
+  void rejectsMisplacedPreSpin() {
+    String[] steps = {"step a D", "step spin P"};
+    // deadline of its own group - nothing would end it
+    assertParseError(3, "pre-spin step spin", steps[0], steps[1], "pattern p spin/a");
+    assertParseError(3, "pre-spin step spin", steps[0], steps[1], "pattern p a+spin");
+    assertParseError(3, "pre-spin step spin", steps[0], steps[1], "pattern p spin");
+    parse(steps[0], steps[1], "pattern p a/spin");
+  }
+
+  @Test
+  void rejectsTooManyPatterns() {
+    List<String> lines = new ArrayList<>();
+    lines.add("step a W 1");
+    for (int ix = 0; ix <= AutoPatternSet.kMAX_PATTERNS; ix++) {
+      lines.add("pattern p" + ix + " a");
+    }
+    assertParseError(AutoPatternSet.kMAX_PATTERNS + 2, "more than " + AutoPatternSet.kMAX_PATTERNS + " patterns",
+        lines.toArray(new String[0]));
+  }
+
+  @Test
+  void rejectsBadSwitch() {
+    assertParseError(1, "bad switch x", "step a W 1 x");
+    assertParseError(1, "switch 13 outside", "step a W 1 13");
+    assertParseError(1, "switch 0 outside", "step a W 1 !0");
+  }
+
+  @Test
+  void rejectsUndefinedStep() {
+    assertParseError(2, "undefined step b",
+        "step a W 1",
+        "pattern p a b");
+  }
+
+  @Test
+  void reportsMissingPaths() {
+    AutoPatternSet patterns = parse(
+        "step drive1 D",
+        "step intake1 I",
+        "step shoot S",
+        "pattern p drive1 intake1 shoot");
+
+    assertTrue(patterns.validate(Set.of("drive1", "intake1")).isEmpty());
+    List<String> problems = patterns.validate(Set.of("drive1", "shoot"));
+    assertEquals(1, problems.size());
+    assertTrue(problems.get(0).contains("step intake1"), problems.get(0));
+  }
+}
@@ -0,0 +1,115 @@
+package frc.robot.replay;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.Constants.AutoConstants;
+import frc.robot.libraries.AutoPatternSet;
+import frc.robot.libraries.AutoPatternSet.Pattern;
+import frc.robot.libraries.AutoPatternSet.Step;
+
+/**
+ * Duration estimate of the pattern groups - every step takes its wait time, so the expected
+ * durations follow from the pattern text alone - and the deployed patterns and paths checked
+ * the way validateAutoPatterns checks them.
+ */
+class AutoPatternValidatorTest {
+
+    private static final double kEPSILON = 1e-9;
+
+    private static Pattern parsePattern(String pattern) {
+        return AutoPatternSet.parse("test.txt", List.of(
+                "step path2 D 2",
+                "step path3 I 3",
+                "step wait1 W 1",
+                "step wait5 W 5",
+                "step wait4on1 W 4 1",
+                "step path3off1 D 3 !1",
+                "step wait6on2 W 6 2",
+                "pattern p " + pattern)).getPattern(0);
+    }
+
+    private static double estimate(String pattern, int mask) {
+        Pattern parsed = parsePattern(pattern);
+        return AutoPatternValidator.estimateDuration(parsed, AutoPatternValidator.getSwitches(parsed), mask,
+                Step::getWaitTime);
+    }
+
+    @Test
+    void sequenceAddsUp() {
+        assertEquals(1 + 2 + 5, estimate("wait1 path2 wait5", 0), kEPSILON);
+    }
+
+    @Test
+    void parallelTakesLongestStep() {
+        assertEquals(5, estimate("path2+wait5+wait1", 0), kEPSILON);
+        assertEquals(1 + 3, estimate("wait1 path3+wait1", 0), kEPSILON);
+    }
+
+    @Test
+    void deadlineTakesDeadlineStep() {
+        assertEquals(2, estimate("path2/wait5", 0), kEPSILON);
+        assertEquals(5, estimate("wait5/path2", 0), kEPSILON);
+        assertEquals(1 + 2, estimate("wait1 path2/wait5/wait1", 0), kEPSILON);
+    }
+
+    @Test
+    void switchedOffStepsTakeNoTime() {
+        // switches [1, 2] - bit 0 is switch 1, bit 1 is switch 2
+        assertArrayEquals(new int[] {1, 2}, AutoPatternValidator.getSwitches(parsePattern("wait4on1 wait6on2")));
+        assertEquals(0, estimate("wait4on1 wait6on2", 0b00), kEPSILON);
+        assertEquals(4, estimate("wait4on1 wait6on2", 0b01), kEPSILON);
+        assertEquals(6, estimate("wait4on1 wait6on2", 0b10), kEPSILON);
+        assertEquals(10, estimate("wait4on1 wait6on2", 0b11), kEPSILON);
+
+        // parallel group without its longest step
+        assertEquals(3, estimate("path3off1+wait4on1", 0b0), kEPSILON);
+        assertEquals(4, estimate("path3off1+wait4on1", 0b1), kEPSILON);
+
+        // deadline switched off - the whole group is skipped, not timed by the others
+        assertEquals(0, estimate("wait4on1/wait5", 0b0), kEPSILON);
+        assertEquals(4, estimate("wait4on1/wait5", 0b1), kEPSILON);
+    }
+
+    @Test
+    void cutOffStepsAreStillEstimatedInOrder() {
+        // path steps advance the rotation the next path starts from, so the estimator
+        // sees every step that runs, including the ones the deadline interrupts
+        List<String> estimated = new ArrayList<>();
+        Pattern pattern = parsePattern("wait1/path2 path3off1+wait1");
+        AutoPatternValidator.estimateDuration(pattern, AutoPatternValidator.getSwitches(pattern), 0, step -> {
+            estimated.add(step.getName());
+            return step.getWaitTime();
+        });
+        assertEquals(List.of("wait1", "path2", "path3off1", "wait1"), estimated);
+    }
+
+    @Test
+    void deployedPatternsFitTheAutoPeriod() throws IOException {
+        RobotLoop.initSimulation();
+        AutoPatternSet patterns = AutoPatternSet.load(AutoPatternValidator.getPatternFile());
+        AutoPatternValidator validator = new AutoPatternValidator();
+
+        assertTrue(patterns.getPatternCount() > 0, "no deployed patterns");
+        assertEquals(List.of(), validator.checkPaths(patterns));
+        for (int ix = 0; ix < patterns.getPatternCount(); ix++) {
+            Pattern pattern = patterns.getPattern(ix);
+            int[] switches = AutoPatternValidator.getSwitches(pattern);
+            for (int mask = 0; mask < 1 << switches.length; mask++) {
+                double duration = validator.estimateDuration(pattern, switches, mask);
+                assertTrue(duration <= AutoConstants.kAutoPeriodSeconds, String.format(Locale.ROOT,
+                        "pattern %d %s with switches %s mask %x runs %.2f s",
+                        ix, pattern.getName(), Arrays.toString(switches), mask, duration));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+import frc.robot.Constants.DriveConstants;
+import frc.robot.replay.RobotLoop;
+
+/**
+ * The drive control loop must not allocate once warmed up.  A DriveSubsystem runs on the
+ * simulated HAL with IO stubs whose sensor values change every loop, enabled, and each test
+ * counts the bytes the robot loop thread allocates over kITERATIONS loops of periodic() and
+ * drive() after enough loops for the JIT to settle.
+ *
+ * <p>Odometry runs on its own thread as on the robot - WPILib's pose estimator allocates per
+ * update, which is kept off the robot loop thread measured here.
+ */
+class DriveLoopAllocationTest {
+
+  private static final int kSAMPLES = 1024;
+  private static final int kWARMUP = 20000;
+  private static final int kITERATIONS = 5000;
+  private static final double kLOOP_PERIOD = 0.02;
+
+  private static DriveSubsystem m_drive;
+  private static final StubModuleIO[] m_moduleIO = new StubModuleIO[4];
+  private static final StubGyroIO m_gyroIO = new StubGyroIO();
+
+  private final double[] m_xInput = new double[kSAMPLES];
+  private final double[] m_yInput = new double[kSAMPLES];
+  private final double[] m_rotInput = new double[kSAMPLES];
+  private int m_ix = 0;
+
+  /* Sensor values that change every loop, so a Rotation2d per changed angle would show */
+  private static class StubModuleIO implements ModuleIO {
+    volatile double m_position = 0.0;
+    volatile double m_velocity = 0.0;
+    volatile double m_turn = 0.0;
+
+    @Override
+    public void updateInputs(ModuleIOInputs inputs) {
+      inputs.drivePositionMeters = m_position;
+      inputs.driveVelocityMetersPerSec = m_velocity;
+      inputs.turnPositionRad = m_turn;
+    }
+  }
+
+  private static class StubGyroIO implements GyroIO {
+    volatile double m_angle = 0.0;
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs) {
+      inputs.angleDegrees = m_angle;
+    }
+  }
+
+  @BeforeAll
+  static void createDrive() {
+    RobotLoop.initSimulation();
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+
+    for (int ix = 0; ix < m_moduleIO.length; ix++) {
+      m_moduleIO[ix] = new StubModuleIO();
+    }
+    m_drive = new DriveSubsystem(m_gyroIO,
+        m_moduleIO[0], m_moduleIO[1], m_moduleIO[2], m_moduleIO[3], null, true);
+  }
+
+  DriveLoopAllocationTest() {
+    Random random = new Random(4662);
+    for (int ix = 0; ix < kSAMPLES; ix++) {
+      // joystick inputs, smoothly varying like a driver would
+      double phase = 2 * Math.PI * ix / kSAMPLES;
+      m_xInput[ix] = Math.cos(phase) * random.nextDouble();
+      m_yInput[ix] = Math.sin(phase) * random.nextDouble();
+      m_rotInput[ix] = (random.nextDouble() - 0.5) * 2;
+    }
+  }
+
+  /* One robot loop - new sensor values, the subsystem periodic, then the drive command's call */
+  private void loop(boolean fieldRelative, boolean rateLimit) {
+    m_ix = (m_ix + 1) & (kSAMPLES - 1);
+    SimHooks.stepTiming(kLOOP_PERIOD);
+    for (int module = 0; module < m_moduleIO.length; module++) {
+      StubModuleIO io = m_moduleIO[module];
+      io.m_velocity = m_xInput[m_ix] * DriveConstants.kMaxSpeedMetersPerSecond;
+      io.m_position += io.m_velocity * kLOOP_PERIOD;
+      io.m_turn = 2 * Math.PI * ((m_ix + module * 64) & (kSAMPLES - 1)) / kSAMPLES;
+    }
+    m_gyroIO.m_angle += m_rotInput[m_ix];
+
+    m_drive.periodic();
+    m_drive.drive(m_xInput[m_ix], m_yInput[m_ix], m_rotInput[m_ix], fieldRelative, rateLimit);
+  }
+
+  @Test
+  void robotRelativeLoopDoesNotAllocate() {
+    assertNoAllocation("robot relative", () -> loop(false, false));
+  }
+
+  @Test
+  void rateLimitedFieldRelativeLoopDoesNotAllocate() {
+    assertNoAllocation("rate limited field relative", () -> loop(true, true));
+  }
+
+  private static void assertNoAllocation(String name, Runnable loop) {
+    com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    for (int ix = 0; ix < kWARMUP; ix++) {
+      loop.run();
+    }
+    long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+    for (int ix = 0; ix < kITERATIONS; ix++) {
+      loop.run();
+    }
+    long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+    assertEquals(0, allocatedBytes, name + " drive loop allocated bytes over " + kITERATIONS + " loops");
+  }
+}